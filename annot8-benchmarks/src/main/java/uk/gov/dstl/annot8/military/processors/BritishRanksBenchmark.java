@@ -0,0 +1,133 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import io.annot8.testing.testimpl.TestItem;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link BritishRanks} on synthetic text, which is made of random words with some
+ * capitalised and, if {@code ranks} is not 0, that many rank mentions per 10,000 words.
+ *
+ * <p>{@code find} scans the text with the British {@link RankDictionary}, and {@code withUsRanks}
+ * with US ranks added as well, which shouldn't be any slower. Most text contains no ranks at all,
+ * so {@code ranks = 0} is the case that matters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BritishRanksBenchmark {
+  private static final String[] RANKS = {"Lt Col", "Sgt", "Private", "Air Vice-Marshal", "WO2"};
+
+  /** The number of words in the text */
+  @Param({"10000", "100000"})
+  public int size;
+
+  /** The number of rank mentions per 10,000 words */
+  @Param({"0", "10"})
+  public int ranks;
+
+  private String text;
+  private RankDictionary british;
+  private RankDictionary withUsRanks;
+  private BritishRanks.Processor processor;
+  private TestStringContent content;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(1234L);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      if (random.nextInt(10000) < ranks) {
+        sb.append(RANKS[random.nextInt(RANKS.length)]).append(" John Smith ");
+        continue;
+      }
+
+      int length = 2 + random.nextInt(9);
+      for (int j = 0; j < length; j++) {
+        char c = (char) ('a' + random.nextInt(26));
+        sb.append(j == 0 && random.nextInt(10) == 0 ? Character.toUpperCase(c) : c);
+      }
+      sb.append(random.nextInt(20) == 0 ? ". " : " ");
+    }
+    text = sb.toString();
+
+    british = RankDictionary.british();
+    withUsRanks =
+        british.with(
+            List.of(
+                "Gunnery Sergeant",
+                "Master Sergeant",
+                "First Sergeant",
+                "Sergeant Major",
+                "Command Sergeant Major",
+                "Sergeant First Class",
+                "Specialist",
+                "Chief Warrant Officer",
+                "Second Lieutenant",
+                "First Lieutenant",
+                "Lieutenant Junior Grade",
+                "Ensign",
+                "Seaman",
+                "Airman First Class",
+                "Senior Airman",
+                "Technical Sergeant"));
+    processor = new BritishRanks.Processor();
+  }
+
+  /**
+   * A new content for every invocation, so that the annotations created by earlier invocations
+   * don't accumulate. The content is built outside of the measured time.
+   */
+  @Setup(Level.Invocation)
+  public void setUpContent() {
+    content = new TestItem().createContent(TestStringContent.class).withData(text).save();
+  }
+
+  @Benchmark
+  public int find() {
+    return british.find(text).size();
+  }
+
+  @Benchmark
+  public int withUsRanks() {
+    return withUsRanks.find(text).size();
+  }
+
+  @Benchmark
+  public TestStringContent process() {
+    processor.process(content);
+    return content;
+  }
+}
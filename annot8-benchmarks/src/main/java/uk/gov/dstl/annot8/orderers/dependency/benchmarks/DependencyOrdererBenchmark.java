@@ -0,0 +1,128 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency.benchmarks;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dstl.annot8.orderers.dependency.DependencyOrderer;
+import uk.gov.dstl.annot8.orderers.dependency.OrderingPhases;
+
+/**
+ * Benchmarks of {@link DependencyOrderer} on synthetic pipelines (see {@link SyntheticPipeline}),
+ * both end to end and split into the phases of ordering (see {@link OrderingPhases}).
+ *
+ * <p>Run with {@code java -jar annot8-benchmarks/target/benchmarks.jar DependencyOrdererBenchmark
+ * -prof gc} to also report the allocation rate. Parameters can be overridden with {@code -p}, e.g.
+ * {@code -p size=5000 -p cycleBreaking=SIMPLE_CYCLES}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyOrdererBenchmark {
+
+  @Param({"10", "100", "1000", "5000"})
+  public int size;
+
+  @Param({"2"})
+  public int fanIn;
+
+  @Param({"2"})
+  public int fanOut;
+
+  @Param({"0.0", "0.01"})
+  public double wildcardDensity;
+
+  @Param({"0.0", "0.01"})
+  public double cycleDensity;
+
+  // Simple cycle enumeration is exponential, so isn't run by default
+  @Param({"STRONGLY_CONNECTED_COMPONENTS"})
+  public DependencyOrderer.CycleBreaking cycleBreaking;
+
+  private List<ProcessorDescriptor> processors;
+  private DependencyOrderer orderer;
+  private OrderingPhases acyclicGraph;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    processors =
+        SyntheticPipeline.generate(size, fanIn, fanOut, wildcardDensity, cycleDensity, 1234L);
+
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setCycleBreaking(cycleBreaking);
+    orderer = new DependencyOrderer(settings);
+
+    acyclicGraph = OrderingPhases.buildGraph(orderer, processors);
+    acyclicGraph.breakCycles();
+  }
+
+  @Benchmark
+  public Collection<ProcessorDescriptor> orderProcessors() {
+    return orderer.orderProcessors(processors);
+  }
+
+  @Benchmark
+  public OrderingPhases buildGraph() {
+    return OrderingPhases.buildGraph(orderer, processors);
+  }
+
+  @Benchmark
+  public int[] topologicalSort() {
+    return acyclicGraph.topologicalOrder();
+  }
+
+  @Benchmark
+  public List<int[]> stronglyConnectedComponents() {
+    return acyclicGraph.stronglyConnectedComponents();
+  }
+
+  /**
+   * Cycle breaking modifies the graph, so needs a new graph for every invocation. The graph is
+   * built outside of the measured time.
+   */
+  @State(Scope.Thread)
+  public static class CyclicGraph {
+    OrderingPhases graph;
+
+    @Setup(Level.Invocation)
+    public void setUp(DependencyOrdererBenchmark benchmark) {
+      graph = OrderingPhases.buildGraph(benchmark.orderer, benchmark.processors);
+    }
+  }
+
+  @Benchmark
+  public OrderingPhases breakCycles(CyclicGraph cyclicGraph) {
+    cyclicGraph.graph.breakCycles();
+    return cyclicGraph.graph;
+  }
+}
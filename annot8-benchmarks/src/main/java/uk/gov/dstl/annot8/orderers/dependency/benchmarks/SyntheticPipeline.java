@@ -0,0 +1,110 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency.benchmarks;
+
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.components.Processor;
+import io.annot8.api.components.ProcessorDescriptor;
+import io.annot8.api.context.Context;
+import io.annot8.api.settings.NoSettings;
+import io.annot8.common.components.AbstractProcessorDescriptor;
+import io.annot8.common.components.capabilities.SimpleCapabilities;
+import io.annot8.common.data.bounds.SpanBounds;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates pipelines of synthetic processors, with annotation capabilities chosen so that the
+ * shape of the dependency graph can be controlled.
+ *
+ * <p>Processor i creates {@code fanOut} annotation types of its own, and processes {@code fanIn}
+ * annotation types. Each processed type is either a wildcard (with probability {@code
+ * wildcardDensity}), a type created by a later processor (with probability {@code cycleDensity}),
+ * or otherwise a type created by an earlier processor. Without wildcards or later processors the
+ * dependency graph is acyclic, and on average each processor has {@code fanIn} dependencies and
+ * {@code fanIn} dependents. The processors are returned in a random order.
+ */
+public final class SyntheticPipeline {
+
+  // The annotation type that the DependencyOrderer treats as matching any other
+  private static final String WILDCARD = "*";
+
+  private SyntheticPipeline() {
+    // Utility class
+  }
+
+  public static List<ProcessorDescriptor> generate(
+      int size, int fanIn, int fanOut, double wildcardDensity, double cycleDensity, long seed) {
+    Random random = new Random(seed);
+
+    List<ProcessorDescriptor> processors = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      SimpleCapabilities.Builder builder = new SimpleCapabilities.Builder();
+
+      for (int j = 0; j < fanOut; j++) {
+        builder = builder.withCreatesAnnotations(type(i, j), SpanBounds.class);
+      }
+
+      for (int j = 0; j < fanIn && fanOut > 0; j++) {
+        double d = random.nextDouble();
+
+        String type;
+        if (d < wildcardDensity) {
+          type = WILDCARD;
+        } else if (d < wildcardDensity + cycleDensity && i < size - 1) {
+          type = type(i + 1 + random.nextInt(size - i - 1), random.nextInt(fanOut));
+        } else if (i > 0) {
+          type = type(random.nextInt(i), random.nextInt(fanOut));
+        } else {
+          continue;
+        }
+
+        builder = builder.withProcessesAnnotations(type, SpanBounds.class);
+      }
+
+      processors.add(new SyntheticProcessor("Processor " + i, builder.build()));
+    }
+
+    Collections.shuffle(processors, random);
+    return processors;
+  }
+
+  private static String type(int processor, int index) {
+    return "type-" + processor + "-" + index;
+  }
+
+  private static final class SyntheticProcessor
+      extends AbstractProcessorDescriptor<Processor, NoSettings> {
+    private final Capabilities capabilities;
+
+    private SyntheticProcessor(String name, Capabilities capabilities) {
+      this.capabilities = capabilities;
+      setName(name);
+    }
+
+    @Override
+    public Capabilities capabilities() {
+      return capabilities;
+    }
+
+    @Override
+    protected Processor createComponent(Context context, NoSettings settings) {
+      throw new UnsupportedOperationException("Synthetic processors can not be created");
+    }
+  }
+}
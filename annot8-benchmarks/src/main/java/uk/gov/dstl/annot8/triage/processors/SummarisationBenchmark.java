@@ -0,0 +1,96 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import io.annot8.components.stopwords.resources.StopwordsIso;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the time taken by {@link TokenFrequencySummarisation} and {@link TextRankSummarisation}
+ * to summarise the same synthetic document. A smaller vocabulary means more sentences share terms,
+ * and so a denser similarity graph for TextRank, unless common terms are ignored with a lower
+ * maxTermFraction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SummarisationBenchmark {
+
+  /** The number of words in the document */
+  @Param({"10000", "100000"})
+  public int size;
+
+  @Param({"5000", "50000"})
+  public int vocabulary;
+
+  /** The maxTermFraction of {@link TextRankSummarisation} */
+  @Param({"1.0", "0.05"})
+  public double maxTermFraction;
+
+  private SyntheticDocument document;
+
+  private TokenFrequencySummarisation.Processor tokenFrequency;
+  private TextRankSummarisation.Processor textRank;
+  private TestStringContent content;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    document = new SyntheticDocument(size, vocabulary, 1234L);
+
+    tokenFrequency = new TokenFrequencySummarisation.Processor(3, new StopwordsIso());
+    textRank =
+        new TextRankSummarisation.Processor(
+            3, new StopwordsIso(), 0.85, 100, 1e-6, maxTermFraction);
+  }
+
+  /**
+   * A new content for every invocation, so that each is summarised from the same annotations
+   * without the summaries of earlier invocations. The content is built outside of the measured
+   * time.
+   */
+  @Setup(Level.Invocation)
+  public void setUpContent() {
+    content = document.createContent();
+  }
+
+  @Benchmark
+  public TestStringContent tokenFrequency() {
+    tokenFrequency.process(content);
+    return content;
+  }
+
+  @Benchmark
+  public TestStringContent textRank() {
+    textRank.process(content);
+    return content;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.testing.testimpl.TestItem;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A synthetic document for benchmarking summarisation, with sentences of 5 to 25 words drawn from a
+ * random vocabulary, common words being much more likely than rare ones.
+ */
+class SyntheticDocument {
+  private final String text;
+  private final int[] tokenBegins;
+  private final int[] tokenEnds;
+  private final List<SpanBounds> sentences = new ArrayList<>();
+
+  /**
+   * @param size the number of words in the document
+   * @param vocabulary the number of distinct words, excluding numbers
+   */
+  SyntheticDocument(int size, int vocabulary, long seed) {
+    Random random = new Random(seed);
+
+    String[] words = new String[vocabulary];
+    for (int i = 0; i < vocabulary; i++) {
+      StringBuilder sb = new StringBuilder();
+      int length = 2 + random.nextInt(9);
+      for (int j = 0; j < length; j++) sb.append((char) ('a' + random.nextInt(26)));
+      words[i] = sb.toString();
+    }
+
+    StringBuilder sb = new StringBuilder();
+    List<int[]> tokens = new ArrayList<>();
+
+    int sentenceBegin = 0;
+    int sentenceLength = 5 + random.nextInt(21);
+    for (int i = 0; i < size; i++) {
+      String word;
+      double d = random.nextDouble();
+      if (d < 0.05) {
+        word = Integer.toString(random.nextInt(10000));
+      } else {
+        word = words[(int) (vocabulary * Math.pow(random.nextDouble(), 3))];
+      }
+
+      if (--sentenceLength == 0 || i == size - 1) {
+        tokens.add(new int[] {sb.length(), sb.length() + word.length()});
+        sb.append(word);
+        tokens.add(new int[] {sb.length(), sb.length() + 1});
+        sb.append('.');
+        sentences.add(new SpanBounds(sentenceBegin, sb.length()));
+
+        sb.append(' ');
+        sentenceBegin = sb.length();
+        sentenceLength = 5 + random.nextInt(21);
+        continue;
+      }
+
+      if (sb.length() == sentenceBegin) {
+        word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+      }
+      tokens.add(new int[] {sb.length(), sb.length() + word.length()});
+      sb.append(word);
+
+      if (d > 0.95) {
+        tokens.add(new int[] {sb.length(), sb.length() + 1});
+        sb.append(',');
+      }
+      sb.append(' ');
+    }
+
+    text = sb.toString();
+    tokenBegins = tokens.stream().mapToInt(t -> t[0]).toArray();
+    tokenEnds = tokens.stream().mapToInt(t -> t[1]).toArray();
+  }
+
+  String getText() {
+    return text;
+  }
+
+  int[] getTokenBegins() {
+    return tokenBegins;
+  }
+
+  int[] getTokenEnds() {
+    return tokenEnds;
+  }
+
+  /** Create a new content holding the document, with sentence and word token annotations */
+  TestStringContent createContent() {
+    TestStringContent content =
+        new TestItem().createContent(TestStringContent.class).withData(text).save();
+
+    for (SpanBounds sb : sentences) {
+      content
+          .getAnnotations()
+          .create()
+          .withType(AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+          .withBounds(sb)
+          .save();
+    }
+
+    for (int i = 0; i < tokenBegins.length; i++) {
+      content
+          .getAnnotations()
+          .create()
+          .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+          .withBounds(new SpanBounds(tokenBegins[i], tokenEnds[i]))
+          .save();
+    }
+
+    return content;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import io.annot8.components.stopwords.resources.StopwordsIso;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dstl.annot8.utils.tokens.LowerCaseCache;
+
+/**
+ * Benchmarks of {@link TokenFrequencySummarisation} on a large synthetic document.
+ *
+ * <p>{@code regexFilter} and {@code cachedFilter} compare the previous per-token path ({@link
+ * String#toLowerCase()} and {@link String#matches(String)}) with the current one ({@link
+ * LowerCaseCache} and {@link TokenFrequencySummarisation.Processor#isWord(String)}). The cache is
+ * held for the whole trial, as the processor holds its cache between documents. Run with {@code
+ * -prof gc} to compare the allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenFrequencySummarisationBenchmark {
+
+  /** The number of words in the document */
+  @Param({"10000", "100000"})
+  public int size;
+
+  @Param({"5000"})
+  public int vocabulary;
+
+  private String text;
+  private int[] tokenBegins;
+  private int[] tokenEnds;
+  private SyntheticDocument document;
+
+  private LowerCaseCache cache;
+  private TokenFrequencySummarisation.Processor processor;
+  private TestStringContent content;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    document = new SyntheticDocument(size, vocabulary, 1234L);
+    text = document.getText();
+    tokenBegins = document.getTokenBegins();
+    tokenEnds = document.getTokenEnds();
+
+    cache = new LowerCaseCache();
+    processor = new TokenFrequencySummarisation.Processor(3, new StopwordsIso());
+  }
+
+  /**
+   * A new content for every invocation, so that each is summarised from the same annotations
+   * without the summaries of earlier invocations. The content is built outside of the measured
+   * time.
+   */
+  @Setup(Level.Invocation)
+  public void setUpContent() {
+    content = document.createContent();
+  }
+
+  @Benchmark
+  public int regexFilter() {
+    int count = 0;
+    for (int i = 0; i < tokenBegins.length; i++) {
+      String w = text.substring(tokenBegins[i], tokenEnds[i]).toLowerCase();
+      if (w.matches("[a-z][-a-z0-9]*")) count++;
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int cachedFilter() {
+    int count = 0;
+    for (int i = 0; i < tokenBegins.length; i++) {
+      String w = cache.toLowerCase(text, tokenBegins[i], tokenEnds[i]);
+      if (TokenFrequencySummarisation.Processor.isWord(w)) count++;
+    }
+    return count;
+  }
+
+  @Benchmark
+  public TestStringContent process() {
+    processor.process(content);
+    return content;
+  }
+}
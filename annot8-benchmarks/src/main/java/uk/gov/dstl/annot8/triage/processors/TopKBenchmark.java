@@ -0,0 +1,74 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares selecting the top k sentence scores with {@link TopK} against sorting all of the scores,
+ * as {@link TokenFrequencySummarisation} previously did.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopKBenchmark {
+
+  /** The number of sentences */
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  @Param({"3", "10"})
+  public int k;
+
+  private double[] scores;
+
+  @Setup
+  public void setUp() {
+    scores = new Random(1234L).ints(size, 0, 500).asDoubleStream().toArray();
+  }
+
+  @Benchmark
+  public int[] sort() {
+    return IntStream.range(0, scores.length)
+        .boxed()
+        .sorted((s1, s2) -> Double.compare(scores[s2], scores[s1]))
+        .limit(k)
+        .mapToInt(Integer::intValue)
+        .sorted()
+        .toArray();
+  }
+
+  @Benchmark
+  public int[] heap() {
+    return TopK.select(scores, k);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import uk.gov.dstl.annot8.orderers.dependency.DependencyOrderer;
+import uk.gov.dstl.annot8.orderers.dependency.OrderingPhases;
+
+public class SyntheticPipelineTest {
+
+  @Test
+  public void testGenerate() {
+    List<ProcessorDescriptor> processors = SyntheticPipeline.generate(100, 2, 3, 0.0, 0.0, 1L);
+    assertEquals(100, processors.size());
+
+    Set<String> names =
+        processors.stream().map(ProcessorDescriptor::getName).collect(Collectors.toSet());
+    assertEquals(100, names.size());
+    assertTrue(names.contains("Processor 0"));
+    assertTrue(names.contains("Processor 99"));
+
+    for (ProcessorDescriptor pd : processors) {
+      assertEquals(3, pd.capabilities().creates().count());
+      assertTrue(pd.capabilities().processes().count() <= 2);
+    }
+
+    // Without wildcards or cycles, every processor can be ordered
+    OrderingPhases g = OrderingPhases.buildGraph(new DependencyOrderer(), processors);
+    assertEquals(100, g.topologicalOrder().length);
+  }
+
+  @Test
+  public void testSameSeed() {
+    List<String> first = names(SyntheticPipeline.generate(50, 2, 2, 0.1, 0.1, 1L));
+    List<String> second = names(SyntheticPipeline.generate(50, 2, 2, 0.1, 0.1, 1L));
+    assertEquals(first, second);
+  }
+
+  @Test
+  public void testCycles() {
+    OrderingPhases g =
+        OrderingPhases.buildGraph(
+            new DependencyOrderer(), SyntheticPipeline.generate(100, 2, 2, 0.0, 0.5, 1L));
+    assertTrue(g.topologicalOrder().length < 100);
+  }
+
+  private static List<String> names(List<ProcessorDescriptor> processors) {
+    return processors.stream().map(ProcessorDescriptor::getName).collect(Collectors.toList());
+  }
+}
@@ -5,9 +5,9 @@ module uk.gov.dstl.annot8.military {
   requires io.annot8.components.base;
   requires io.annot8.components.base.text;
   requires io.annot8.conventions;
-  requires io.annot8.components.gazetteers;
   requires io.annot8.components.stopwords;
   requires io.annot8.utils.text;
+  requires uk.gov.dstl.annot8.utils.tokens;
 
   exports uk.gov.dstl.annot8.military.processors;
 }
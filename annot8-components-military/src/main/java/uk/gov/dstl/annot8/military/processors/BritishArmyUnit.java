@@ -51,18 +51,20 @@ public class BritishArmyUnit
   }
 
   public static class Processor extends AbstractRegexProcessor {
+    static final Pattern PATTERN =
+        Pattern.compile(
+            "\\b(?=\\d+ Sect\\b|\\d+ Pl\\b|[A-Z] Coy\\b)"
+                + "(?<section>\\d+ Sect\\b)?+[\\s,]*"
+                + "(?<platoon>\\d+ Pl\\b)?+[\\s,]*"
+                + "(?<company>[A-Z]+ Coy\\b)?+[\\s,]*"
+                + "(?<platoon2>\\d+ Pl\\b)?+[\\s,]*"
+                + "(?<section2>\\d+ Sect\\b)?+[\\s,]*", // Will match abbreviations in any order
+            Pattern.CASE_INSENSITIVE);
+    static final MultiRegexScanner.Rule RULE =
+        MultiRegexScanner.Rule.wordBefore(PATTERN, " sect", " pl", " coy");
+
     public Processor() {
-      super(
-          Pattern.compile(
-              "\\b(?=\\d+ Sect\\b|\\d+ Pl\\b|[A-Z] Coy\\b)"
-                  + "(?<section>\\d+ Sect\\b)?+[\\s,]*"
-                  + "(?<platoon>\\d+ Pl\\b)?+[\\s,]*"
-                  + "(?<company>[A-Z]+ Coy\\b)?+[\\s,]*"
-                  + "(?<platoon2>\\d+ Pl\\b)?+[\\s,]*"
-                  + "(?<section2>\\d+ Sect\\b)?+[\\s,]*", // Will match abbreviations in any order
-              Pattern.CASE_INSENSITIVE),
-          0,
-          AnnotationTypes.ANNOTATION_TYPE_ORGANISATION);
+      super(PATTERN, 0, AnnotationTypes.ANNOTATION_TYPE_ORGANISATION);
     }
 
     @Override
@@ -51,11 +51,12 @@ public class CallSign extends AbstractProcessorDescriptor<CallSign.Processor, No
   }
 
   public static class Processor extends AbstractRegexProcessor {
+    static final Pattern PATTERN = Pattern.compile("\\bC[\\\\|/]S ([A-Z ]+)\\b");
+    static final MultiRegexScanner.Rule RULE =
+        MultiRegexScanner.Rule.startingWith(PATTERN, "c\\s ", "c|s ", "c/s ");
+
     public Processor() {
-      super(
-          Pattern.compile("\\bC[\\\\|/]S ([A-Z ]+)\\b"),
-          0,
-          AnnotationTypes.ENTITY_PREFIX + "callSign");
+      super(PATTERN, 0, AnnotationTypes.ENTITY_PREFIX + "callSign");
     }
 
     @Override
@@ -16,7 +16,6 @@
 package uk.gov.dstl.annot8.military.processors;
 
 import io.annot8.api.capabilities.Capabilities;
-import io.annot8.api.components.Processor;
 import io.annot8.api.components.annotations.ComponentDescription;
 import io.annot8.api.components.annotations.ComponentName;
 import io.annot8.api.components.annotations.ComponentTags;
@@ -26,57 +25,54 @@ import io.annot8.common.components.AbstractProcessorDescriptor;
 import io.annot8.common.components.capabilities.SimpleCapabilities;
 import io.annot8.common.data.bounds.SpanBounds;
 import io.annot8.common.data.content.Text;
-import io.annot8.components.base.processors.MultiProcessor;
-import io.annot8.components.gazetteers.processors.AhoCorasick;
-import io.annot8.components.gazetteers.processors.impl.CollectionGazetteer;
+import io.annot8.components.base.text.processors.AbstractTextProcessor;
 import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import io.annot8.utils.text.PluralUtils;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 @ComponentName("Generic Military Platform")
 @ComponentDescription("Extracts military platforms (with descriptions) from text")
 @ComponentTags({"military"})
 public class GenericMilitaryPlatform
-    extends AbstractProcessorDescriptor<MultiProcessor, NoSettings> {
+    extends AbstractProcessorDescriptor<GenericMilitaryPlatform.Processor, NoSettings> {
 
   public static final String MILITARY_PLATFORM_TYPE =
       AnnotationTypes.ENTITY_PREFIX + "militaryPlatform";
 
   @Override
-  protected MultiProcessor createComponent(Context context, NoSettings noSettings) {
-    Processor pNaval =
-        new AhoCorasick.Processor(
-            new CollectionGazetteer(
-                Set.of(
-                    "aircraft carrier",
-                    "assault ship",
-                    "frigate",
-                    "destroyer",
-                    "submarine",
-                    "minesweeper",
-                    "warship")),
-            new GenericMilitaryPlatformSettings(MILITARY_PLATFORM_TYPE, "naval"));
+  protected Processor createComponent(Context context, NoSettings noSettings) {
+    Map<String, String> platforms = new HashMap<>();
+    addPlatforms(
+        platforms,
+        "naval",
+        Set.of(
+            "aircraft carrier",
+            "assault ship",
+            "frigate",
+            "destroyer",
+            "submarine",
+            "minesweeper",
+            "warship"));
+    addPlatforms(
+        platforms,
+        "ground",
+        Set.of("tank", "armoured vehicle", "humvee", "military vehicle", "tactical vehicle"));
+    addPlatforms(
+        platforms,
+        "air",
+        Set.of(
+            "attack aircraft",
+            "attack helicopter",
+            "drone",
+            "fighter jet",
+            "fighter plane",
+            "uav",
+            "warplane"));
 
-    Processor pGround =
-        new AhoCorasick.Processor(
-            new CollectionGazetteer(
-                Set.of(
-                    "tank", "armoured vehicle", "humvee", "military vehicle", "tactical vehicle")),
-            new GenericMilitaryPlatformSettings(MILITARY_PLATFORM_TYPE, "ground"));
-
-    Processor pAir =
-        new AhoCorasick.Processor(
-            new CollectionGazetteer(
-                Set.of(
-                    "attack aircraft",
-                    "attack helicopter",
-                    "drone",
-                    "fighter jet",
-                    "fighter plane",
-                    "uav",
-                    "warplane")),
-            new GenericMilitaryPlatformSettings(MILITARY_PLATFORM_TYPE, "air"));
-
-    return new MultiProcessor(pNaval, pGround, pAir);
+    return new Processor(platforms);
   }
 
   @Override
@@ -87,17 +83,34 @@ public class GenericMilitaryPlatform
         .build();
   }
 
-  private static class GenericMilitaryPlatformSettings extends AhoCorasick.Settings {
-    public GenericMilitaryPlatformSettings(String type, String subtype) {
-      super();
+  private static void addPlatforms(
+      Map<String, String> platforms, String subtype, Set<String> names) {
+    for (String name : PluralUtils.pluraliseSet(names)) platforms.put(name, subtype);
+  }
 
-      setType(type);
-      setSubType(subtype);
+  /**
+   * Finds every platform in a single pass over the text, using one automaton for all subtypes.
+   * Platforms are matched ignoring case and differences in whitespace, and only as whole words.
+   */
+  public static class Processor extends AbstractTextProcessor {
+    private final LabelledAhoCorasick<String> automaton;
+
+    /** @param platforms map from the name of each platform to its subtype */
+    public Processor(Map<String, String> platforms) {
+      this.automaton = LabelledAhoCorasick.words(platforms);
+    }
 
-      setAdditionalData(false);
-      setCaseSensitive(false);
-      setExactWhitespace(false);
-      setPlurals(true);
+    @Override
+    protected void process(Text content) {
+      for (LabelledAhoCorasick.Match<String> m : automaton.find(content.getData())) {
+        content
+            .getAnnotations()
+            .create()
+            .withType(MILITARY_PLATFORM_TYPE)
+            .withBounds(new SpanBounds(m.getBegin(), m.getEnd()))
+            .withProperty(PropertyKeys.PROPERTY_KEY_SUBTYPE, m.getLabel())
+            .save();
+      }
     }
   }
 }
@@ -15,8 +15,8 @@
  */
 package uk.gov.dstl.annot8.military.processors;
 
+import io.annot8.api.annotations.Annotation;
 import io.annot8.api.capabilities.Capabilities;
-import io.annot8.api.components.Processor;
 import io.annot8.api.components.annotations.ComponentDescription;
 import io.annot8.api.components.annotations.ComponentName;
 import io.annot8.api.components.annotations.ComponentTags;
@@ -26,24 +26,28 @@ import io.annot8.common.components.AbstractProcessorDescriptor;
 import io.annot8.common.components.capabilities.SimpleCapabilities;
 import io.annot8.common.data.bounds.SpanBounds;
 import io.annot8.common.data.content.Text;
-import io.annot8.components.base.processors.MultiProcessor;
-import io.annot8.components.base.text.processors.DescribedWordToken;
+import io.annot8.components.base.text.processors.AbstractTextProcessor;
 import io.annot8.components.stopwords.resources.NoOpStopwords;
 import io.annot8.components.stopwords.resources.Stopwords;
 import io.annot8.conventions.AnnotationTypes;
 import io.annot8.conventions.PropertyKeys;
 import io.annot8.utils.text.PluralUtils;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import uk.gov.dstl.annot8.utils.tokens.LowerCaseCache;
+import uk.gov.dstl.annot8.utils.tokens.TokenView;
 
 @ComponentName("Generic Weapon")
 @ComponentDescription("Extracts weapons (with descriptions) from text")
 @ComponentTags({"military"})
-public class GenericWeapon extends AbstractProcessorDescriptor<MultiProcessor, NoSettings> {
+public class GenericWeapon
+    extends AbstractProcessorDescriptor<GenericWeapon.Processor, NoSettings> {
 
   @Override
-  protected MultiProcessor createComponent(Context context, NoSettings noSettings) {
+  protected Processor createComponent(Context context, NoSettings noSettings) {
     Stopwords sw;
     if (context == null || context.getResource(Stopwords.class).isEmpty()) {
       sw = new NoOpStopwords();
@@ -118,52 +122,15 @@ public class GenericWeapon extends AbstractProcessorDescriptor<MultiProcessor, N
             "submachine",
             "sub-machine");
 
-    Processor pFirearm =
-        new DescribedWordToken.Processor(
-            sw,
-            AnnotationTypes.ANNOTATION_TYPE_WEAPON,
-            PluralUtils.pluraliseSet(firearm),
-            descriptors,
-            false,
-            Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "firearm"));
-
-    Processor pAmmunition =
-        new DescribedWordToken.Processor(
-            sw,
-            AnnotationTypes.ANNOTATION_TYPE_WEAPON,
-            PluralUtils.pluraliseSet(ammunition),
-            descriptors,
-            false,
-            Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "ammunition"));
-
-    Processor pExplosive =
-        new DescribedWordToken.Processor(
-            sw,
-            AnnotationTypes.ANNOTATION_TYPE_WEAPON,
-            PluralUtils.pluraliseSet(explosive),
-            descriptors,
-            false,
-            Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "explosive"));
-
-    Processor pBladed =
-        new DescribedWordToken.Processor(
-            sw,
-            AnnotationTypes.ANNOTATION_TYPE_WEAPON,
-            PluralUtils.pluraliseSet(bladed),
-            descriptors,
-            false,
-            Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "bladed"));
-
-    Processor pOther =
-        new DescribedWordToken.Processor(
-            sw,
-            AnnotationTypes.ANNOTATION_TYPE_WEAPON,
-            PluralUtils.pluraliseSet(other),
-            descriptors,
-            false,
-            Collections.emptyMap());
-
-    return new MultiProcessor(pFirearm, pAmmunition, pExplosive, pBladed, pOther);
+    List<Category> categories =
+        List.of(
+            category(firearm, Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "firearm")),
+            category(ammunition, Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "ammunition")),
+            category(explosive, Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "explosive")),
+            category(bladed, Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "bladed")),
+            category(other, Collections.emptyMap()));
+
+    return new Processor(sw, categories, descriptors);
   }
 
   @Override
@@ -175,4 +142,136 @@ public class GenericWeapon extends AbstractProcessorDescriptor<MultiProcessor, N
         .withCreatesAnnotations(AnnotationTypes.ANNOTATION_TYPE_WEAPON, SpanBounds.class)
         .build();
   }
+
+  private static Category category(Set<String> words, Map<String, Object> properties) {
+    return new Category(PluralUtils.pluraliseSet(words), properties);
+  }
+
+  /** A category of weapons, and the properties of the annotations created for them */
+  public static class Category {
+    private final Set<String> words;
+    private final Map<String, Object> properties;
+
+    /**
+     * @param words the weapon words in this category, in lower case
+     * @param properties the properties of the annotations created for these words
+     */
+    public Category(Set<String> words, Map<String, Object> properties) {
+      this.words = words;
+      this.properties = properties;
+    }
+
+    public Set<String> getWords() {
+      return words;
+    }
+
+    public Map<String, Object> getProperties() {
+      return properties;
+    }
+  }
+
+  /**
+   * Finds weapons of every category in a single pass over the word tokens of each sentence. Each
+   * token is looked up once in a map from weapon word to the properties of its category, and when
+   * a weapon is found, any descriptors immediately before it (e.g. "assault" in "assault rifle")
+   * are included in the annotation. Stop words between descriptors are included too, but the
+   * annotation never starts with one.
+   *
+   * <p>Tokens are compared ignoring case, and must be entirely within a sentence.
+   */
+  public static class Processor extends AbstractTextProcessor {
+    private final Stopwords stopwords;
+    private final Map<String, Map<String, Object>> weapons;
+    private final Set<String> descriptors;
+
+    // Kept between documents, so words that have been seen before are lower cased without
+    // allocating. This makes the processor unsafe to share between threads.
+    private final LowerCaseCache lowerCase = new LowerCaseCache();
+
+    /**
+     * @param categories the categories of weapon, which mustn't share any words
+     * @param descriptors words, in lower case, that can describe a weapon
+     * @throws IllegalArgumentException if a word is in more than one category
+     */
+    public Processor(Stopwords stopwords, List<Category> categories, Set<String> descriptors) {
+      this.stopwords = stopwords;
+      this.descriptors = descriptors;
+
+      this.weapons = new HashMap<>();
+      for (Category category : categories) {
+        for (String word : category.getWords()) {
+          if (weapons.put(word, category.getProperties()) != null) {
+            throw new IllegalArgumentException(
+                "Weapon " + word + " is in more than one category");
+          }
+        }
+      }
+    }
+
+    @Override
+    protected void process(Text content) {
+      // Built for each call, as the tokens may have changed since the last
+      TokenView tokens = TokenView.build(content, lowerCase);
+      int[] sentenceTokens = new int[tokens.size()];
+
+      content
+          .getAnnotations()
+          .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+          .forEach(
+              sentence -> {
+                SpanBounds sb = sentence.getBounds(SpanBounds.class).get();
+
+                // Find the tokens within the sentence
+                int n = 0;
+                for (int i = tokens.lowerBound(sb.getBegin());
+                    i < tokens.size() && tokens.getBegin(i) < sb.getEnd();
+                    i++) {
+                  if (tokens.getEnd(i) <= sb.getEnd()) sentenceTokens[n++] = i;
+                }
+
+                for (int k = 0; k < n; k++) {
+                  Map<String, Object> properties =
+                      weapons.get(tokens.getLowerCase(sentenceTokens[k]));
+                  if (properties != null) {
+                    createWeapon(content, tokens, sentenceTokens, k, properties);
+                  }
+                }
+              });
+    }
+
+    /**
+     * Create a weapon ending at the k'th token of the sentence, extended backwards over any
+     * descriptors
+     */
+    private void createWeapon(
+        Text content,
+        TokenView tokens,
+        int[] sentenceTokens,
+        int k,
+        Map<String, Object> properties) {
+      int begin = k;
+      while (begin > 0 && isDescriptorOrStopword(tokens.getLowerCase(sentenceTokens[begin - 1]))) {
+        begin--;
+      }
+
+      while (begin < k && !descriptors.contains(tokens.getLowerCase(sentenceTokens[begin]))) {
+        begin++;
+      }
+
+      Annotation.Builder builder =
+          content
+              .getAnnotations()
+              .create()
+              .withType(AnnotationTypes.ANNOTATION_TYPE_WEAPON)
+              .withBounds(
+                  new SpanBounds(
+                      tokens.getBegin(sentenceTokens[begin]), tokens.getEnd(sentenceTokens[k])));
+      properties.forEach(builder::withProperty);
+      builder.save();
+    }
+
+    private boolean isDescriptorOrStopword(String word) {
+      return descriptors.contains(word) || stopwords.isStopword(word);
+    }
+  }
 }
@@ -50,12 +50,14 @@ public class HMS extends AbstractProcessorDescriptor<HMS.Processor, NoSettings>
   }
 
   public static class Processor extends AbstractRegexProcessor {
+    static final Pattern PATTERN =
+        Pattern.compile(
+            "\\bH[.]?M[.]?((A|B|C|N[.]?Z|P[.]?N[.]?G|J|T[.]?S)[.]?)?S[.]?( [A-Z][a-z]*){1,3}\\b");
+    static final MultiRegexScanner.Rule RULE =
+        MultiRegexScanner.Rule.startingWith(PATTERN, "hm", "h.m");
+
     public Processor() {
-      super(
-          Pattern.compile(
-              "\\bH[.]?M[.]?((A|B|C|N[.]?Z|P[.]?N[.]?G|J|T[.]?S)[.]?)?S[.]?( [A-Z][a-z]*){1,3}\\b"),
-          0,
-          AnnotationTypes.ANNOTATION_TYPE_VEHICLE);
+      super(PATTERN, 0, AnnotationTypes.ANNOTATION_TYPE_VEHICLE);
     }
 
     @Override
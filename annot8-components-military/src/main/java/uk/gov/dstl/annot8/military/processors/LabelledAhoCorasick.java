@@ -0,0 +1,271 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton which finds many keywords in a single pass over a text, with each keyword
+ * carrying a label that is returned with its matches.
+ *
+ * <p>Keywords are always matched ignoring case. An automaton created by {@link #words(Map)} only
+ * matches whole words, and any run of whitespace in the text matches a single space in a keyword,
+ * so a keyword split across lines is still found. One created by {@link #substrings(Map)} matches
+ * keywords anywhere, exactly as they are. All matches are returned, including overlapping ones.
+ *
+ * <p>The automaton doesn't change once built, so can be shared between threads.
+ */
+final class LabelledAhoCorasick<T> {
+  private static final int[] NO_OUTPUTS = new int[0];
+
+  // Transitions out of each state, as sorted characters and the states they lead to
+  private final char[][] transitionChars;
+  private final int[][] transitionStates;
+
+  // The state to fall back to when there is no transition, i.e. the longest proper suffix of the
+  // state that is also a prefix of a keyword
+  private final int[] failures;
+
+  // The keywords ending at each state, including those ending at its failure states
+  private final int[][] outputs;
+
+  private final int[] keywordLengths;
+  private final List<T> keywordLabels;
+
+  private final boolean wholeWords;
+
+  private LabelledAhoCorasick(Map<String, T> keywords, boolean wholeWords) {
+    this.wholeWords = wholeWords;
+
+    List<TreeMap<Character, Integer>> transitions = new ArrayList<>();
+    List<List<Integer>> stateOutputs = new ArrayList<>();
+    transitions.add(new TreeMap<>());
+    stateOutputs.add(new ArrayList<>());
+
+    keywordLengths = new int[keywords.size()];
+    keywordLabels = new ArrayList<>(keywords.size());
+
+    // Build a trie of the keywords
+    int id = 0;
+    for (Map.Entry<String, T> e : keywords.entrySet()) {
+      String keyword = wholeWords ? normalise(e.getKey()) : lowerCase(e.getKey());
+      if (keyword.isEmpty()) throw new IllegalArgumentException("Keywords must not be empty");
+
+      int state = 0;
+      for (int i = 0; i < keyword.length(); i++) {
+        Integer next = transitions.get(state).get(keyword.charAt(i));
+        if (next == null) {
+          next = transitions.size();
+          transitions.add(new TreeMap<>());
+          stateOutputs.add(new ArrayList<>());
+          transitions.get(state).put(keyword.charAt(i), next);
+        }
+        state = next;
+      }
+
+      stateOutputs.get(state).add(id);
+      keywordLengths[id] = keyword.length();
+      keywordLabels.add(e.getValue());
+      id++;
+    }
+
+    int n = transitions.size();
+    transitionChars = new char[n][];
+    transitionStates = new int[n][];
+    for (int s = 0; s < n; s++) {
+      TreeMap<Character, Integer> t = transitions.get(s);
+      transitionChars[s] = new char[t.size()];
+      transitionStates[s] = new int[t.size()];
+
+      int i = 0;
+      for (Map.Entry<Character, Integer> e : t.entrySet()) {
+        transitionChars[s][i] = e.getKey();
+        transitionStates[s][i] = e.getValue();
+        i++;
+      }
+    }
+
+    // Find the failure of each state breadth first, so a state's failure is always found before
+    // its own, and merge in the outputs of the failure
+    failures = new int[n];
+    outputs = new int[n][];
+    outputs[0] = NO_OUTPUTS;
+
+    Deque<Integer> queue = new ArrayDeque<>();
+    for (int child : transitionStates[0]) queue.add(child);
+
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+
+      List<Integer> out = stateOutputs.get(state);
+      if (failures[state] != 0) {
+        for (int o : outputs[failures[state]]) out.add(o);
+      }
+      outputs[state] =
+          out.isEmpty() ? NO_OUTPUTS : out.stream().mapToInt(Integer::intValue).toArray();
+
+      for (int i = 0; i < transitionChars[state].length; i++) {
+        char c = transitionChars[state][i];
+        int child = transitionStates[state][i];
+
+        int f = failures[state];
+        while (f != 0 && next(f, c) == -1) f = failures[f];
+        int fc = next(f, c);
+        failures[child] = fc == -1 || fc == child ? 0 : fc;
+
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * Returns an automaton matching whole words, ignoring case and differences in whitespace
+   *
+   * @param keywords map from each keyword to its label
+   */
+  static <T> LabelledAhoCorasick<T> words(Map<String, T> keywords) {
+    return new LabelledAhoCorasick<>(keywords, true);
+  }
+
+  /**
+   * Returns an automaton matching anywhere in the text, ignoring case only
+   *
+   * @param keywords map from each keyword to its label
+   */
+  static <T> LabelledAhoCorasick<T> substrings(Map<String, T> keywords) {
+    return new LabelledAhoCorasick<>(keywords, false);
+  }
+
+  /** Find all matches of the keywords in the text, in order of where they end */
+  List<Match<T>> find(String text) {
+    // Normalise the text as the keywords were, remembering where each character came from
+    char[] chars = new char[text.length()];
+    int[] offsets = new int[text.length()];
+    int length = 0;
+    boolean whitespace = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (wholeWords && Character.isWhitespace(c)) {
+        if (whitespace) continue;
+        whitespace = true;
+        c = ' ';
+      } else {
+        whitespace = false;
+        c = Character.toLowerCase(c);
+      }
+
+      chars[length] = c;
+      offsets[length] = i;
+      length++;
+    }
+
+    List<Match<T>> matches = new ArrayList<>();
+
+    int state = 0;
+    for (int i = 0; i < length; i++) {
+      char c = chars[i];
+
+      int next = next(state, c);
+      while (next == -1 && state != 0) {
+        state = failures[state];
+        next = next(state, c);
+      }
+      state = next == -1 ? 0 : next;
+
+      for (int o : outputs[state]) {
+        int begin = i + 1 - keywordLengths[o];
+        if (!wholeWords
+            || (isWordBoundary(chars, length, begin) && isWordBoundary(chars, length, i + 1))) {
+          matches.add(new Match<>(offsets[begin], offsets[i] + 1, keywordLabels.get(o)));
+        }
+      }
+    }
+
+    return matches;
+  }
+
+  /** The number of states in the automaton */
+  int size() {
+    return failures.length;
+  }
+
+  private int next(int state, char c) {
+    int i = Arrays.binarySearch(transitionChars[state], c);
+    return i < 0 ? -1 : transitionStates[state][i];
+  }
+
+  /** Whether position i in the text is not in the middle of a word */
+  private static boolean isWordBoundary(char[] chars, int length, int i) {
+    return i == 0
+        || i == length
+        || !Character.isLetterOrDigit(chars[i - 1])
+        || !Character.isLetterOrDigit(chars[i]);
+  }
+
+  /** Lower case the keyword, and replace runs of whitespace with a single space */
+  static String normalise(String keyword) {
+    StringBuilder sb = new StringBuilder(keyword.length());
+    boolean whitespace = false;
+    for (int i = 0; i < keyword.length(); i++) {
+      char c = keyword.charAt(i);
+      if (Character.isWhitespace(c)) {
+        whitespace = true;
+      } else {
+        if (whitespace && sb.length() > 0) sb.append(' ');
+        whitespace = false;
+        sb.append(Character.toLowerCase(c));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String lowerCase(String keyword) {
+    StringBuilder sb = new StringBuilder(keyword.length());
+    for (int i = 0; i < keyword.length(); i++) sb.append(Character.toLowerCase(keyword.charAt(i)));
+    return sb.toString();
+  }
+
+  /** A match of a keyword, with its bounds in the original text */
+  static final class Match<T> {
+    private final int begin;
+    private final int end;
+    private final T label;
+
+    Match(int begin, int end, T label) {
+      this.begin = begin;
+      this.end = end;
+      this.label = label;
+    }
+
+    int getBegin() {
+      return begin;
+    }
+
+    int getEnd() {
+      return end;
+    }
+
+    T getLabel() {
+      return label;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import io.annot8.api.annotations.Annotation;
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.components.annotations.ComponentDescription;
+import io.annot8.api.components.annotations.ComponentName;
+import io.annot8.api.components.annotations.ComponentTags;
+import io.annot8.api.context.Context;
+import io.annot8.api.settings.NoSettings;
+import io.annot8.common.components.AbstractProcessorDescriptor;
+import io.annot8.common.components.capabilities.SimpleCapabilities;
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.common.data.content.Text;
+import io.annot8.components.base.text.processors.AbstractTextProcessor;
+import io.annot8.conventions.AnnotationTypes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+
+@ComponentName("Military Patterns")
+@ComponentDescription(
+    "Extracts British Army units, British ranks, call signs, HMS designations and task forces from text, without a separate pass over the text for each")
+@ComponentTags({"military", "army", "navy"})
+public class MilitaryPatterns
+    extends AbstractProcessorDescriptor<MilitaryPatterns.Processor, NoSettings> {
+  @Override
+  protected Processor createComponent(Context context, NoSettings noSettings) {
+    return new Processor();
+  }
+
+  @Override
+  public Capabilities capabilities() {
+    return new SimpleCapabilities.Builder()
+        .withCreatesAnnotations(AnnotationTypes.ANNOTATION_TYPE_ORGANISATION, SpanBounds.class)
+        .withCreatesAnnotations(AnnotationTypes.ANNOTATION_TYPE_PERSON, SpanBounds.class)
+        .withCreatesAnnotations(AnnotationTypes.ENTITY_PREFIX + "callSign", SpanBounds.class)
+        .withCreatesAnnotations(AnnotationTypes.ANNOTATION_TYPE_VEHICLE, SpanBounds.class)
+        .withCreatesAnnotations(AnnotationTypes.ENTITY_PREFIX + "taskForce", SpanBounds.class)
+        .withProcessesContent(Text.class)
+        .build();
+  }
+
+  /**
+   * Produces the same annotations as running {@link BritishArmyUnit}, {@link BritishRanks}, {@link
+   * CallSign}, {@link HMS} and {@link TaskForce} one after another. The patterns are found with a
+   * single {@link MultiRegexScanner} rather than a pass over the text for each, and the ranks with
+   * a {@link RankDictionary}.
+   */
+  public static class Processor extends AbstractTextProcessor {
+    private final List<String> types = new ArrayList<>();
+    private final List<BiConsumer<Annotation.Builder, Matcher>> properties = new ArrayList<>();
+    private final MultiRegexScanner scanner;
+    private final BritishRanks.Processor ranks = new BritishRanks.Processor();
+
+    public Processor() {
+      List<MultiRegexScanner.Rule> rules = new ArrayList<>();
+
+      BritishArmyUnit.Processor armyUnit = new BritishArmyUnit.Processor();
+      rules.add(BritishArmyUnit.Processor.RULE);
+      types.add(AnnotationTypes.ANNOTATION_TYPE_ORGANISATION);
+      properties.add(armyUnit::addProperties);
+
+      CallSign.Processor callSign = new CallSign.Processor();
+      rules.add(CallSign.Processor.RULE);
+      types.add(AnnotationTypes.ENTITY_PREFIX + "callSign");
+      properties.add(callSign::addProperties);
+
+      HMS.Processor hms = new HMS.Processor();
+      rules.add(HMS.Processor.RULE);
+      types.add(AnnotationTypes.ANNOTATION_TYPE_VEHICLE);
+      properties.add(hms::addProperties);
+
+      TaskForce.Processor taskForce = new TaskForce.Processor();
+      rules.add(TaskForce.Processor.RULE);
+      types.add(AnnotationTypes.ENTITY_PREFIX + "taskForce");
+      properties.add(taskForce::addProperties);
+
+      scanner = new MultiRegexScanner(rules);
+    }
+
+    @Override
+    protected void process(Text content) {
+      scanner.scan(
+          content.getData(),
+          (rule, m) -> {
+            Annotation.Builder builder =
+                content
+                    .getAnnotations()
+                    .create()
+                    .withType(types.get(rule))
+                    .withBounds(new SpanBounds(m.start(), m.end()));
+            properties.get(rule).accept(builder, m);
+            builder.save();
+          });
+
+      ranks.process(content);
+    }
+  }
+}
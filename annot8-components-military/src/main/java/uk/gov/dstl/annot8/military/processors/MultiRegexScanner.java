@@ -0,0 +1,187 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the matches of several regular expressions with a single pass over a text.
+ *
+ * <p>Each {@link Rule} names literals that every match of its pattern must start with (or follow,
+ * see {@link Rule#wordBefore(Pattern, String...)}). All the literals are found together by one
+ * Aho-Corasick automaton, and each pattern is then only tried, anchored, at the offsets where one
+ * of its literals was found. Literals are found ignoring case, so may be given in lower case.
+ *
+ * <p>The matches are exactly those that {@link Matcher#find()} would return, provided that the
+ * literals really are required by the pattern. A rule without literals falls back to {@link
+ * Matcher#find()} over the whole text.
+ *
+ * <p>The scanner doesn't change once built, so can be shared between threads.
+ */
+final class MultiRegexScanner {
+  private final List<Rule> rules;
+  private final LabelledAhoCorasick<int[]> literals;
+
+  MultiRegexScanner(List<Rule> rules) {
+    this.rules = List.copyOf(rules);
+
+    // Label each literal with the rules it belongs to
+    Map<String, int[]> labels = new HashMap<>();
+    for (int r = 0; r < this.rules.size(); r++) {
+      for (String literal : this.rules.get(r).literals) {
+        String key = literal.toLowerCase(Locale.ROOT);
+        int[] owners = labels.getOrDefault(key, new int[0]);
+        if (owners.length == 0 || owners[owners.length - 1] != r) {
+          owners = Arrays.copyOf(owners, owners.length + 1);
+          owners[owners.length - 1] = r;
+        }
+        labels.put(key, owners);
+      }
+    }
+
+    this.literals = LabelledAhoCorasick.substrings(labels);
+  }
+
+  /**
+   * Find the matches of every rule in the text, passing each to the consumer along with the index
+   * of its rule. Matches are given rule by rule, in the order the rules were provided, and in
+   * order of position within each rule.
+   */
+  void scan(String text, MatchConsumer consumer) {
+    // Collect the offsets at which each rule could match
+    int[][] candidates = new int[rules.size()][];
+    int[] counts = new int[rules.size()];
+    for (LabelledAhoCorasick.Match<int[]> m : literals.find(text)) {
+      for (int r : m.getLabel()) {
+        int start = rules.get(r).candidateStart(text, m.getBegin());
+        if (start < 0) continue;
+
+        if (candidates[r] == null) {
+          candidates[r] = new int[8];
+        } else if (counts[r] == candidates[r].length) {
+          candidates[r] = Arrays.copyOf(candidates[r], counts[r] * 2);
+        }
+        candidates[r][counts[r]++] = start;
+      }
+    }
+
+    for (int r = 0; r < rules.size(); r++) {
+      Rule rule = rules.get(r);
+      Matcher m = rule.pattern.matcher(text);
+
+      if (rule.literals.length == 0) {
+        while (m.find()) consumer.accept(r, m);
+        continue;
+      }
+
+      if (counts[r] == 0) continue;
+
+      // Literals are found in order of where they end, so candidates must be sorted
+      int[] starts = Arrays.copyOf(candidates[r], counts[r]);
+      Arrays.sort(starts);
+
+      // Lookbehinds and word boundaries must still see the text before the candidate
+      m.useTransparentBounds(true);
+      m.useAnchoringBounds(false);
+
+      // Step through the candidates as find() would step through the text
+      int from = 0;
+      int previous = -1;
+      for (int start : starts) {
+        if (start < from || start == previous) continue;
+        previous = start;
+
+        m.region(start, text.length());
+        if (m.lookingAt()) {
+          consumer.accept(r, m);
+          from = m.end() == m.start() ? m.end() + 1 : m.end();
+        }
+      }
+    }
+  }
+
+  /** The number of rules */
+  int size() {
+    return rules.size();
+  }
+
+  /** Receives the matches found by a {@link MultiRegexScanner} */
+  @FunctionalInterface
+  interface MatchConsumer {
+    void accept(int rule, Matcher matcher);
+  }
+
+  /** A pattern, and the literals its matches are anchored to */
+  static final class Rule {
+    private final Pattern pattern;
+    private final String[] literals;
+    private final boolean wordBefore;
+
+    private Rule(Pattern pattern, String[] literals, boolean wordBefore) {
+      for (String literal : literals) {
+        if (literal.isEmpty()) throw new IllegalArgumentException("Literals must not be empty");
+      }
+
+      this.pattern = pattern;
+      this.literals = literals.clone();
+      this.wordBefore = wordBefore;
+    }
+
+    /** A rule whose matches all start with one of the literals */
+    static Rule startingWith(Pattern pattern, String... literals) {
+      if (literals.length == 0) throw new IllegalArgumentException("No literals given");
+      return new Rule(pattern, literals, false);
+    }
+
+    /**
+     * A rule whose matches all start with a word that is immediately followed by one of the
+     * literals, for instance the "2" before " Pl" in "2 Pl"
+     */
+    static Rule wordBefore(Pattern pattern, String... literals) {
+      if (literals.length == 0) throw new IllegalArgumentException("No literals given");
+      return new Rule(pattern, literals, true);
+    }
+
+    /** A rule with no literals, which is matched over the whole text */
+    static Rule unfiltered(Pattern pattern) {
+      return new Rule(pattern, new String[0], false);
+    }
+
+    Pattern getPattern() {
+      return pattern;
+    }
+
+    /** Where a match would start given a literal at the offset, or -1 if it can't match there */
+    private int candidateStart(String text, int literal) {
+      if (!wordBefore) return literal;
+
+      // Word characters as used by \b
+      int start = literal;
+      while (start > 0
+          && (Character.isLetterOrDigit(text.charAt(start - 1)) || text.charAt(start - 1) == '_')) {
+        start--;
+      }
+
+      return start == literal ? -1 : start;
+    }
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dictionary of military ranks, which finds ranks followed by a name (e.g. Lt Col John Smith) in
+ * text.
+ *
+ * <p>Ranks are held in a trie keyed on tokens, where a token is a run of letters, digits and
+ * underscores, or any other single non-whitespace character. A rank matches wherever its tokens
+ * appear in order, case sensitively, separated only by spaces and tabs (so "SAC (T)" also matches
+ * "SAC(T)", but "Lt Col" doesn't match across a line break). The longest rank that is followed by
+ * a name is used. A name is one or more words, each preceded by a single space and starting with a
+ * capital letter, made up of letters, hyphens and apostrophes.
+ *
+ * <p>This differs from the regular expression previously used to find ranks in two ways. A name
+ * word that runs on into a digit or underscore after its last letter is rejected whole, so
+ * "Capt John-Smith1" has no name, where the regular expression matched "Capt John-". Punctuation
+ * within a rank may now be padded with spaces, so "SAC ( T )" and "Air Vice - Marshal" match the
+ * ranks "SAC (T)" and "Air Vice-Marshal", which the regular expression didn't allow.
+ *
+ * <p>The text is scanned once, and the cost of matching depends on the length of the ranks rather
+ * than how many there are, so further sets of ranks can be added with {@link #with(Collection)}
+ * at no cost to matching. The dictionary doesn't change once built, so can be shared between
+ * threads.
+ */
+public final class RankDictionary {
+  private static final String BRITISH_RANKS = "british-ranks.txt";
+
+  private final Set<String> ranks;
+  private final Node root = new Node();
+
+  // The first characters of the ranks, so that most tokens can be skipped without a lookup
+  private final BitSet firstChars = new BitSet();
+
+  /** Create a dictionary of the given ranks, for instance as returned by {@link #read} */
+  public RankDictionary(Collection<String> ranks) {
+    this.ranks = new LinkedHashSet<>(ranks);
+
+    for (String rank : this.ranks) {
+      Node node = root;
+      int i = skipWhitespace(rank, 0);
+      if (i == rank.length()) throw new IllegalArgumentException("Ranks must not be empty");
+      firstChars.set(rank.charAt(i));
+
+      while (i < rank.length()) {
+        int end = tokenEnd(rank, i);
+        node = node.children.computeIfAbsent(rank.substring(i, end), k -> new Node());
+        i = skipWhitespace(rank, end);
+      }
+      node.rank = true;
+    }
+  }
+
+  /** Returns the British ranks bundled with this module */
+  public static RankDictionary british() {
+    return British.INSTANCE;
+  }
+
+  /**
+   * Read ranks from a stream, one per line. Blank lines and lines starting with # are ignored. The
+   * stream is not closed.
+   */
+  public static List<String> read(InputStream inputStream) throws IOException {
+    List<String> ranks = new ArrayList<>();
+
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (!line.isEmpty() && !line.startsWith("#")) ranks.add(line);
+    }
+
+    return ranks;
+  }
+
+  /** Returns a new dictionary containing the ranks in this one as well as the given ranks */
+  public RankDictionary with(Collection<String> additionalRanks) {
+    List<String> combined = new ArrayList<>(ranks);
+    combined.addAll(additionalRanks);
+    return new RankDictionary(combined);
+  }
+
+  /** The number of distinct ranks */
+  public int size() {
+    return ranks.size();
+  }
+
+  /** Find each rank followed by a name in the text, in order. Matches don't overlap. */
+  public List<Match> find(String text) {
+    List<Match> matches = new ArrayList<>();
+
+    int i = skipWhitespace(text, 0);
+    while (i < text.length()) {
+      int end = tokenEnd(text, i);
+
+      Match m = firstChars.get(text.charAt(i)) ? matchAt(text, i, end) : null;
+      if (m != null) {
+        matches.add(m);
+        i = skipWhitespace(text, m.getEnd());
+      } else {
+        i = skipWhitespace(text, end);
+      }
+    }
+
+    return matches;
+  }
+
+  /** Match the longest rank starting with the token at begin that is followed by a name */
+  private Match matchAt(String text, int begin, int end) {
+    Node node = root.children.get(text.substring(begin, end));
+
+    Match longest = null;
+    while (node != null) {
+      if (node.rank) {
+        int nameEnd = nameEnd(text, end);
+        if (nameEnd != -1) {
+          longest =
+              new Match(
+                  begin, nameEnd, text.substring(begin, end), text.substring(end + 1, nameEnd));
+        }
+      }
+
+      if (node.children.isEmpty()) break;
+
+      int next = skipHorizontalWhitespace(text, end);
+      if (next == text.length() || Character.isWhitespace(text.charAt(next))) break;
+
+      int nextEnd = tokenEnd(text, next);
+      node = node.children.get(text.substring(next, nextEnd));
+      end = nextEnd;
+    }
+
+    return longest;
+  }
+
+  /** Returns the end of the name starting at offset, or -1 if there is no name there */
+  private static int nameEnd(String text, int offset) {
+    int nameEnd = -1;
+
+    int i = offset;
+    while (i + 1 < text.length() && text.charAt(i) == ' ' && isCapital(text.charAt(i + 1))) {
+      int end = i + 2;
+      while (end < text.length() && isNameChar(text.charAt(end))) end++;
+
+      // Names end with a letter, which mustn't be followed by another word character
+      int wordEnd = end;
+      while (!isLetter(text.charAt(wordEnd - 1))) wordEnd--;
+      if (wordEnd < text.length() && isWordChar(text.charAt(wordEnd))) break;
+
+      nameEnd = wordEnd;
+      i = wordEnd;
+    }
+
+    return nameEnd;
+  }
+
+  private static int tokenEnd(String s, int begin) {
+    if (!isWordChar(s.charAt(begin))) return begin + 1;
+
+    int end = begin + 1;
+    while (end < s.length() && isWordChar(s.charAt(end))) end++;
+    return end;
+  }
+
+  private static int skipWhitespace(String s, int i) {
+    while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+    return i;
+  }
+
+  private static int skipHorizontalWhitespace(String s, int i) {
+    while (i < s.length() && isHorizontalWhitespace(s.charAt(i))) i++;
+    return i;
+  }
+
+  /** Tabs and spaces (including no-break and other Unicode spaces), but not line breaks */
+  private static boolean isHorizontalWhitespace(char c) {
+    return c == '\t' || Character.getType(c) == Character.SPACE_SEPARATOR;
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  private static boolean isCapital(char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isLetter(char c) {
+    return isCapital(c) || (c >= 'a' && c <= 'z');
+  }
+
+  private static boolean isNameChar(char c) {
+    return isLetter(c) || c == '-' || c == '\'';
+  }
+
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private boolean rank = false;
+  }
+
+  /** Loaded when first used */
+  private static final class British {
+    private static final RankDictionary INSTANCE = load();
+
+    private static RankDictionary load() {
+      try (InputStream is = RankDictionary.class.getResourceAsStream(BRITISH_RANKS)) {
+        if (is == null) throw new IllegalStateException("Missing resource " + BRITISH_RANKS);
+        return new RankDictionary(read(is));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /** A rank and the name following it */
+  public static final class Match {
+    private final int begin;
+    private final int end;
+    private final String rank;
+    private final String name;
+
+    private Match(int begin, int end, String rank, String name) {
+      this.begin = begin;
+      this.end = end;
+      this.rank = rank;
+      this.name = name;
+    }
+
+    public int getBegin() {
+      return begin;
+    }
+
+    public int getEnd() {
+      return end;
+    }
+
+    /** The rank, as it appears in the text */
+    public String getRank() {
+      return rank;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
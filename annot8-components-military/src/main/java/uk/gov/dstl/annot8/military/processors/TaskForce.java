@@ -50,11 +50,13 @@ public class TaskForce extends AbstractProcessorDescriptor<TaskForce.Processor,
   }
 
   public static class Processor extends AbstractRegexProcessor {
+    static final Pattern PATTERN =
+        Pattern.compile("\\b(tf|task force)[\\h]*([\\-0-9]+)\\b", Pattern.CASE_INSENSITIVE);
+    static final MultiRegexScanner.Rule RULE =
+        MultiRegexScanner.Rule.startingWith(PATTERN, "tf", "task force");
+
     public Processor() {
-      super(
-          Pattern.compile("\\b(tf|task force)[\\h]*([\\-0-9]+)\\b", Pattern.CASE_INSENSITIVE),
-          0,
-          AnnotationTypes.ENTITY_PREFIX + "taskForce");
+      super(PATTERN, 0, AnnotationTypes.ENTITY_PREFIX + "taskForce");
     }
 
     @Override
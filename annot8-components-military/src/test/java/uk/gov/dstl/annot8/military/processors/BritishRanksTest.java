@@ -24,6 +24,9 @@ import io.annot8.conventions.AnnotationTypes;
 import io.annot8.conventions.PropertyKeys;
 import io.annot8.testing.testimpl.TestItem;
 import io.annot8.testing.testimpl.content.TestStringContent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 public class BritishRanksTest {
@@ -73,13 +76,50 @@ public class BritishRanksTest {
         2L, content.getAnnotations().getByType(AnnotationTypes.ANNOTATION_TYPE_PERSON).count());
   }
 
+  @Test
+  public void testAllRanks() throws IOException {
+    List<String> ranks;
+    try (InputStream is = RankDictionary.class.getResourceAsStream("british-ranks.txt")) {
+      ranks = RankDictionary.read(is);
+    }
+
+    for (String rank : ranks) {
+      test("Yesterday " + rank + " John Smith-Jones was seen", rank, "John Smith-Jones");
+    }
+  }
+
+  @Test
+  public void testLongestRank() {
+    test("Lt Col John Smith", "Lt Col", "John Smith");
+    test("Lieutenant Commander Ward", "Lieutenant Commander", "Ward");
+    test("Air Vice-Marshal Ward", "Air Vice-Marshal", "Ward");
+    test("SAC(T) Ward", "SAC(T)", "Ward");
+
+    // Without a name after the longer rank, the shorter one is used
+    test("The Lieutenant Commander said", "Lieutenant", "Commander");
+  }
+
+  @Test
+  public void testOtherRanks() {
+    BritishRanks.Processor brProc =
+        new BritishRanks.Processor(
+            RankDictionary.british().with(List.of("Gunnery Sergeant", "OF-6")));
+
+    test(brProc, "Gunnery Sergeant Hartman", "Gunnery Sergeant", "Hartman");
+    test(brProc, "OF-6 Smith", "OF-6", "Smith");
+    test(brProc, "Sgt Smith", "Sgt", "Smith");
+  }
+
   private void test(String text, String rank, String name) {
+    BritishRanks br = new BritishRanks();
+    test(br.createComponent(null, NoSettings.getInstance()), text, rank, name);
+  }
+
+  private void test(BritishRanks.Processor brProc, String text, String rank, String name) {
     TestItem testItem = new TestItem();
     TestStringContent content =
         testItem.createContent(TestStringContent.class).withData(text).save();
 
-    BritishRanks br = new BritishRanks();
-    BritishRanks.Processor brProc = br.createComponent(null, NoSettings.getInstance());
     brProc.process(testItem);
 
     assertEquals(1L, content.getAnnotations().getAll().count());
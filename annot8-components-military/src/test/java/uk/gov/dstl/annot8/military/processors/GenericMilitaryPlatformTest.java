@@ -23,6 +23,8 @@ import io.annot8.api.settings.NoSettings;
 import io.annot8.conventions.PropertyKeys;
 import io.annot8.testing.testimpl.TestItem;
 import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 public class GenericMilitaryPlatformTest {
@@ -50,6 +52,70 @@ public class GenericMilitaryPlatformTest {
         "The aircraft carrier's keys were hidden in the forest.", "aircraft carrier", "naval");
   }
 
+  @Test
+  public void testWholeWords() {
+    testNoMatch("The tanker was hidden in the forest.");
+    testNoMatch("The aircraft carrierpigeon was hidden in the forest.");
+  }
+
+  @Test
+  public void testWhitespace() {
+    testSingleMatch("The Fighter\n  Jet was hidden in the forest.", "Fighter\n  Jet", "air");
+  }
+
+  @Test
+  public void testMultipleSubtypes() {
+    TestItem item = new TestItem();
+    TestStringContent content =
+        item.createContent(TestStringContent.class)
+            .withData("Two frigates, a tank and an attack aircraft carrier.")
+            .save();
+
+    Processor processor =
+        new GenericMilitaryPlatform().createComponent(null, NoSettings.getInstance());
+    processor.process(item);
+
+    Map<String, String> subtypes =
+        content
+            .getAnnotations()
+            .getByType(GenericMilitaryPlatform.MILITARY_PLATFORM_TYPE)
+            .collect(
+                Collectors.toMap(
+                    a -> content.getText(a).get(),
+                    a ->
+                        a.getProperties()
+                            .get(PropertyKeys.PROPERTY_KEY_SUBTYPE, String.class)
+                            .get()));
+
+    assertEquals(
+        Map.of(
+            "frigates",
+            "naval",
+            "tank",
+            "ground",
+            "attack aircraft",
+            "air",
+            "aircraft carrier",
+            "naval"),
+        subtypes);
+
+    processor.close();
+  }
+
+  private void testNoMatch(String sentence) {
+    TestItem item = new TestItem();
+    TestStringContent content =
+        item.createContent(TestStringContent.class).withData(sentence).save();
+
+    Processor processor =
+        new GenericMilitaryPlatform().createComponent(null, NoSettings.getInstance());
+    processor.process(item);
+
+    assertEquals(
+        0,
+        content.getAnnotations().getByType(GenericMilitaryPlatform.MILITARY_PLATFORM_TYPE).count());
+  }
+
   private void testSingleMatch(String sentence, String match, String subtype) {
     TestItem item = new TestItem();
     TestStringContent content =
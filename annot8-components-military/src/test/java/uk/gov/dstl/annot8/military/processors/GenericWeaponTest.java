@@ -21,12 +21,18 @@ import io.annot8.api.annotations.Annotation;
 import io.annot8.api.components.Processor;
 import io.annot8.api.settings.NoSettings;
 import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.components.stopwords.resources.CollectionStopwords;
 import io.annot8.conventions.AnnotationTypes;
 import io.annot8.conventions.PropertyKeys;
 import io.annot8.testing.testimpl.TestItem;
 import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 public class GenericWeaponTest {
@@ -56,6 +62,189 @@ public class GenericWeaponTest {
     testSingleMatch("Sam owned a machete.", "machete", "bladed");
   }
 
+  @Test
+  public void testMultipleCategories() {
+    TestItem item = new TestItem();
+    TestStringContent content =
+        createContent(item, "Rocket propelled grenades and KNIVES were found. A sword too.");
+
+    Processor processor = new GenericWeapon().createComponent(null, NoSettings.getInstance());
+    processor.process(item);
+
+    Map<String, String> weapons =
+        content
+            .getAnnotations()
+            .getByType(AnnotationTypes.ANNOTATION_TYPE_WEAPON)
+            .collect(
+                Collectors.toMap(
+                    a -> content.getText(a).get(),
+                    a ->
+                        a.getProperties()
+                            .get(PropertyKeys.PROPERTY_KEY_SUBTYPE, String.class)
+                            .orElse("")));
+
+    // Rocket is both a weapon and a descriptor
+    assertEquals(
+        Map.of(
+            "Rocket",
+            "explosive",
+            "Rocket propelled grenades",
+            "explosive",
+            "KNIVES",
+            "bladed",
+            "sword",
+            "bladed"),
+        weapons);
+
+    processor.close();
+  }
+
+  @Test
+  public void testStopwords() {
+    TestItem item = new TestItem();
+    TestStringContent content =
+        createContent(item, "They found a chemical and biological weapon.");
+
+    Processor processor =
+        new GenericWeapon.Processor(
+            new CollectionStopwords("en", Set.of("a", "and")),
+            List.of(new GenericWeapon.Category(Set.of("weapon"), Collections.emptyMap())),
+            Set.of("chemical", "biological"));
+    processor.process(item);
+
+    Annotation a =
+        content
+            .getAnnotations()
+            .getByType(AnnotationTypes.ANNOTATION_TYPE_WEAPON)
+            .findFirst()
+            .get();
+    assertEquals("chemical and biological weapon", content.getText(a).get());
+    assertFalse(a.getProperties().has(PropertyKeys.PROPERTY_KEY_SUBTYPE));
+
+    processor.close();
+  }
+
+  @Test
+  public void testOverlappingCategories() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new GenericWeapon.Processor(
+                new CollectionStopwords("en", Set.of()),
+                List.of(
+                    new GenericWeapon.Category(
+                        Set.of("rocket"), Map.of(PropertyKeys.PROPERTY_KEY_SUBTYPE, "explosive")),
+                    new GenericWeapon.Category(Set.of("gun", "rocket"), Collections.emptyMap())),
+                Set.of()));
+  }
+
+  @Test
+  public void testRetokenised() {
+    TestItem item = new TestItem();
+    TestStringContent content = createContent(item, "A gun and a knife.");
+
+    Processor processor = new GenericWeapon().createComponent(null, NoSettings.getInstance());
+    processor.process(item);
+    assertEquals(List.of("gun", "knife"), weapons(content));
+
+    // Replace the knife token with one that isn't a weapon, so the number of tokens is unchanged
+    content
+        .getAnnotations()
+        .getAll()
+        .filter(
+            a ->
+                AnnotationTypes.ANNOTATION_TYPE_WEAPON.equals(a.getType())
+                    || "knife".equals(content.getText(a).orElse("")))
+        .forEach(a -> content.getAnnotations().delete(a));
+    content
+        .getAnnotations()
+        .create()
+        .withBounds(new SpanBounds(12, 15))
+        .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+        .save();
+
+    processor.process(item);
+    assertEquals(List.of("gun"), weapons(content));
+
+    processor.close();
+  }
+
+  @Test
+  public void testSentences() {
+    TestItem item = new TestItem();
+    TestStringContent content =
+        item.createContent(TestStringContent.class)
+            .withData("It was nuclear. Missiles were launched.")
+            .save();
+
+    Matcher m = Pattern.compile("\\w+").matcher(content.getData());
+    while (m.find()) {
+      content
+          .getAnnotations()
+          .create()
+          .withBounds(new SpanBounds(m.start(), m.end()))
+          .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+          .save();
+    }
+
+    // Only the second sentence is annotated, and descriptors can't come from the first
+    content
+        .getAnnotations()
+        .create()
+        .withBounds(new SpanBounds(16, 39))
+        .withType(AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+        .save();
+
+    Processor processor = new GenericWeapon().createComponent(null, NoSettings.getInstance());
+    processor.process(item);
+
+    assertEquals(
+        List.of("Missiles"),
+        content
+            .getAnnotations()
+            .getByType(AnnotationTypes.ANNOTATION_TYPE_WEAPON)
+            .map(a -> content.getText(a).get())
+            .collect(Collectors.toList()));
+
+    processor.close();
+  }
+
+  private static List<String> weapons(TestStringContent content) {
+    return content
+        .getAnnotations()
+        .getByType(AnnotationTypes.ANNOTATION_TYPE_WEAPON)
+        .map(a -> content.getText(a).get())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  private static TestStringContent createContent(TestItem item, String sentence) {
+    TestStringContent content =
+        item.createContent(TestStringContent.class).withData(sentence).save();
+
+    Matcher m = Pattern.compile("\\w+").matcher(content.getData());
+    while (m.find()) {
+      content
+          .getAnnotations()
+          .create()
+          .withBounds(new SpanBounds(m.start(), m.end()))
+          .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+          .save();
+    }
+
+    Matcher mSent = Pattern.compile("(.*?\\.)\\h*").matcher(sentence);
+    while (mSent.find()) {
+      content
+          .getAnnotations()
+          .create()
+          .withBounds(new SpanBounds(mSent.start(1), mSent.end(1)))
+          .withType(AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+          .save();
+    }
+
+    return content;
+  }
+
   private void testSingleMatch(String sentence, String match, String subtype) {
     TestItem item = new TestItem();
     TestStringContent content =
@@ -0,0 +1,103 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class LabelledAhoCorasickTest {
+
+  @Test
+  public void testFind() {
+    LabelledAhoCorasick<String> automaton =
+        LabelledAhoCorasick.words(
+            Map.of("he", "a", "she", "b", "his", "c", "hers", "d", "ushers", "e"));
+
+    // Overlapping matches within a word aren't whole words
+    assertTrue(automaton.find("ushers").stream().noneMatch(m -> m.getLabel().equals("a")));
+
+    List<LabelledAhoCorasick.Match<String>> matches = automaton.find("Ushers: she, his and HERS");
+    assertEquals(4, matches.size());
+    assertMatch(matches.get(0), 0, 6, "e");
+    assertMatch(matches.get(1), 8, 11, "b");
+    assertMatch(matches.get(2), 13, 16, "c");
+    assertMatch(matches.get(3), 21, 25, "d");
+  }
+
+  @Test
+  public void testFailureOutputs() {
+    // Finding "b c" relies on following the failure from "a b" once "a b d" fails
+    LabelledAhoCorasick<String> automaton =
+        LabelledAhoCorasick.words(Map.of("a b d", "x", "b c", "y", "c", "z"));
+
+    List<LabelledAhoCorasick.Match<String>> matches = automaton.find("a b c");
+    assertEquals(2, matches.size());
+    assertMatch(matches.get(0), 2, 5, "y");
+    assertMatch(matches.get(1), 4, 5, "z");
+  }
+
+  @Test
+  public void testWhitespace() {
+    LabelledAhoCorasick<String> automaton =
+        LabelledAhoCorasick.words(Map.of(" fighter   jet ", "air"));
+
+    List<LabelledAhoCorasick.Match<String>> matches =
+        automaton.find("A Fighter\n\t jet, and a fighter jet");
+    assertEquals(2, matches.size());
+    assertMatch(matches.get(0), 2, 15, "air");
+    assertMatch(matches.get(1), 23, 34, "air");
+
+    assertTrue(automaton.find("A fighterjet").isEmpty());
+  }
+
+  @Test
+  public void testSubstrings() {
+    LabelledAhoCorasick<String> automaton =
+        LabelledAhoCorasick.substrings(Map.of(" sect", "section", "c/s", "callsign", "tf", "tf"));
+
+    List<LabelledAhoCorasick.Match<String>> matches =
+        automaton.find("2 SECT, 4  sect, C/STF1 and 3 Section");
+    assertEquals(5, matches.size());
+    assertMatch(matches.get(0), 1, 6, "section");
+    assertMatch(matches.get(1), 10, 15, "section");
+    assertMatch(matches.get(2), 17, 20, "callsign");
+    assertMatch(matches.get(3), 20, 22, "tf");
+    assertMatch(matches.get(4), 29, 34, "section");
+  }
+
+  @Test
+  public void testNormalise() {
+    assertEquals("fighter jet", LabelledAhoCorasick.normalise("  Fighter \n Jet "));
+    assertEquals("", LabelledAhoCorasick.normalise(" \t"));
+    assertThrows(IllegalArgumentException.class, () -> LabelledAhoCorasick.words(Map.of(" ", "x")));
+  }
+
+  @Test
+  public void testSize() {
+    // The root, then one state per distinct prefix
+    assertEquals(6, LabelledAhoCorasick.words(Map.of("tank", "a", "tap", "b")).size());
+  }
+
+  private static void assertMatch(
+      LabelledAhoCorasick.Match<String> m, int begin, int end, String label) {
+    assertEquals(begin, m.getBegin());
+    assertEquals(end, m.getEnd());
+    assertEquals(label, m.getLabel());
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.annot8.api.annotations.Annotation;
+import io.annot8.api.components.Processor;
+import io.annot8.api.components.ProcessorDescriptor;
+import io.annot8.api.settings.NoSettings;
+import io.annot8.implementations.support.context.SimpleContext;
+import io.annot8.testing.testimpl.TestItem;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class MilitaryPatternsTest {
+  private static final String TEXT =
+      "Lt Col John Smith of 1 Pl, A Coy told C/S ALPHA TWO that HMS Troutbridge and H.M.S. Hidden"
+          + " Dragon would join Task force 123 and TF4-56. Cpl Jones of 2 Sect 3 Pl passed on the"
+          + " message to Sgt O'Neil-Brown.";
+
+  @Test
+  public void testCreation() {
+    MilitaryPatterns mp = new MilitaryPatterns();
+    MilitaryPatterns.Processor proc = mp.createComponent(null, NoSettings.getInstance());
+    assertNotNull(proc);
+    proc.close();
+  }
+
+  @Test
+  public void testCapabilities() {
+    assertEquals(5, new MilitaryPatterns().capabilities().creates().count());
+  }
+
+  @Test
+  public void testSameAsIndividualProcessors() {
+    List<String> expected =
+        Stream.of(
+                new BritishArmyUnit(),
+                new BritishRanks(),
+                new CallSign(),
+                new HMS(),
+                new TaskForce())
+            .flatMap(d -> annotate(d).stream())
+            .sorted()
+            .collect(Collectors.toList());
+
+    List<String> actual = annotate(new MilitaryPatterns());
+    actual.sort(null);
+
+    assertEquals(10, actual.size());
+    assertEquals(expected, actual);
+  }
+
+  private static List<String> annotate(ProcessorDescriptor<?, ?> descriptor) {
+    TestItem testItem = new TestItem();
+    TestStringContent content =
+        testItem.createContent(TestStringContent.class).withData(TEXT).save();
+
+    Processor proc = (Processor) descriptor.create(new SimpleContext());
+    proc.process(testItem);
+
+    return content
+        .getAnnotations()
+        .getAll()
+        .map(MilitaryPatternsTest::describe)
+        .collect(Collectors.toList());
+  }
+
+  private static String describe(Annotation a) {
+    return a.getType() + " " + a.getBounds() + " " + a.getProperties().getAll();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+public class MultiRegexScannerTest {
+
+  @Test
+  public void testSameAsFind() {
+    List<MultiRegexScanner.Rule> rules =
+        List.of(
+            BritishArmyUnit.Processor.RULE,
+            CallSign.Processor.RULE,
+            HMS.Processor.RULE,
+            TaskForce.Processor.RULE);
+    MultiRegexScanner scanner = new MultiRegexScanner(rules);
+    assertEquals(4, scanner.size());
+
+    for (String text :
+        List.of(
+            "1 Pl, A Coy have reported suspicious activity whilst patrolling near CP A.",
+            "2 Sect 3 Pl B Coy, then AB Coy, x5 Sect and 4 pl placed 12 SECT",
+            "C/S ALPHA and C|S BRAVO TWO met C\\S CHARLIE, but c/s delta did not",
+            "HMS Troutbridge, H.M.S. Hidden Dragon, HMJS Other and hms lower",
+            "Task force 123, TF4-56 and TF 789. But not ATF000 or TF000a. tftf 1",
+            "",
+            "Nothing to see here")) {
+      assertEquals(findAll(rules, text), scanAll(scanner, text), text);
+    }
+  }
+
+  @Test
+  public void testOverlappingCandidates() {
+    // The second candidate lies within the first match, so find() would never try it
+    MultiRegexScanner scanner =
+        new MultiRegexScanner(
+            List.of(MultiRegexScanner.Rule.startingWith(Pattern.compile("ab+a"), "ab", "ba")));
+
+    assertEquals(List.of("0:0-4:abba", "0:5-8:aba"), scanAll(scanner, "abbaaaba"));
+  }
+
+  @Test
+  public void testWordBefore() {
+    MultiRegexScanner scanner =
+        new MultiRegexScanner(
+            List.of(MultiRegexScanner.Rule.wordBefore(Pattern.compile("\\b\\d+ Pl\\b"), " pl")));
+
+    assertEquals(List.of("0:0-5:12 Pl", "0:17-21:3 Pl"), scanAll(scanner, "12 Pl, Pl, a3 Pl 3 Pl"));
+  }
+
+  @Test
+  public void testUnfiltered() {
+    MultiRegexScanner scanner =
+        new MultiRegexScanner(
+            List.of(
+                MultiRegexScanner.Rule.unfiltered(Pattern.compile("[0-9]+")),
+                MultiRegexScanner.Rule.startingWith(Pattern.compile("x[0-9]"), "x")));
+
+    assertEquals(List.of("0:1-3:12", "0:4-5:3", "1:0-2:x1", "1:3-5:x3"), scanAll(scanner, "x12x3"));
+  }
+
+  @Test
+  public void testSharedLiterals() {
+    MultiRegexScanner scanner =
+        new MultiRegexScanner(
+            List.of(
+                MultiRegexScanner.Rule.startingWith(Pattern.compile("tf"), "tf", "TF"),
+                MultiRegexScanner.Rule.startingWith(Pattern.compile("TF"), "tf")));
+
+    assertEquals(List.of("0:3-5:tf", "1:0-2:TF"), scanAll(scanner, "TF tf"));
+  }
+
+  @Test
+  public void testEmptyLiteral() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MultiRegexScanner.Rule.startingWith(Pattern.compile("a"), ""));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MultiRegexScanner.Rule.startingWith(Pattern.compile("a")));
+  }
+
+  private static List<String> findAll(List<MultiRegexScanner.Rule> rules, String text) {
+    List<String> matches = new ArrayList<>();
+    for (int r = 0; r < rules.size(); r++) {
+      Matcher m = rules.get(r).getPattern().matcher(text);
+      while (m.find()) matches.add(describe(r, m));
+    }
+    return matches;
+  }
+
+  private static List<String> scanAll(MultiRegexScanner scanner, String text) {
+    List<String> matches = new ArrayList<>();
+    scanner.scan(text, (r, m) -> matches.add(describe(r, m)));
+    return matches;
+  }
+
+  private static String describe(int rule, Matcher m) {
+    return rule + ":" + m.start() + "-" + m.end() + ":" + m.group();
+  }
+}
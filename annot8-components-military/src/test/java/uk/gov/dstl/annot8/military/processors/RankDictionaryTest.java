@@ -0,0 +1,149 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.military.processors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class RankDictionaryTest {
+
+  @Test
+  public void testFind() {
+    RankDictionary ranks = new RankDictionary(List.of("Lt", "Lt Col", "Sgt"));
+
+    List<RankDictionary.Match> matches =
+        ranks.find("Lt Col John Smith and Sgt O'Neil-Brown met Lt Jones.");
+    assertEquals(3, matches.size());
+
+    assertMatch(matches.get(0), 0, 17, "Lt Col", "John Smith");
+    assertMatch(matches.get(1), 22, 38, "Sgt", "O'Neil-Brown");
+    assertMatch(matches.get(2), 43, 51, "Lt", "Jones");
+  }
+
+  @Test
+  public void testNames() {
+    RankDictionary ranks = new RankDictionary(List.of("Sgt"));
+
+    // Names need a single space and a capital letter
+    assertTrue(ranks.find("Sgt smith").isEmpty());
+    assertTrue(ranks.find("Sgt  Smith").isEmpty());
+    assertTrue(ranks.find("Sgt\nSmith").isEmpty());
+
+    // Names must end at the end of a word
+    assertTrue(ranks.find("Sgt Smith2").isEmpty());
+    assertMatch(ranks.find("Sgt Smith- and").get(0), 0, 9, "Sgt", "Smith");
+    assertMatch(ranks.find("Sgt John Smith2").get(0), 0, 8, "Sgt", "John");
+
+    // Ranks must start at the start of a word, and be matched case sensitively
+    assertTrue(ranks.find("XSgt Smith").isEmpty());
+    assertTrue(ranks.find("SGT Smith").isEmpty());
+    assertMatch(ranks.find("(Sgt Smith)").get(0), 1, 10, "Sgt", "Smith");
+  }
+
+  @Test
+  public void testTokens() {
+    RankDictionary ranks = new RankDictionary(List.of("SAC (T)", "Air Vice-Marshal"));
+
+    assertMatch(ranks.find("SAC(T) Smith").get(0), 0, 12, "SAC(T)", "Smith");
+    assertMatch(ranks.find("SAC  ( T ) Smith").get(0), 0, 16, "SAC  ( T )", "Smith");
+    assertMatch(ranks.find("Air Vice-Marshal Smith").get(0), 0, 22, "Air Vice-Marshal", "Smith");
+    assertTrue(ranks.find("SAC Smith").isEmpty());
+  }
+
+  @Test
+  public void testNameRunsOnIntoDigit() {
+    RankDictionary ranks = new RankDictionary(List.of("Capt"));
+
+    // The whole word is rejected, rather than matching up to the last hyphen
+    assertTrue(ranks.find("Capt John-Smith1").isEmpty());
+    assertTrue(ranks.find("Capt John-Smith_").isEmpty());
+    assertMatch(ranks.find("Capt Jane John-Smith1").get(0), 0, 9, "Capt", "Jane");
+  }
+
+  @Test
+  public void testPaddedPunctuation() {
+    RankDictionary ranks = new RankDictionary(List.of("SAC (T)", "Air Vice-Marshal"));
+
+    assertMatch(ranks.find("SAC ( T ) Smith").get(0), 0, 15, "SAC ( T )", "Smith");
+    assertMatch(
+        ranks.find("Air Vice - Marshal Smith").get(0), 0, 24, "Air Vice - Marshal", "Smith");
+  }
+
+  @Test
+  public void testLineBreaks() {
+    RankDictionary ranks = new RankDictionary(List.of("Lt", "Lt Col", "Col"));
+
+    // Rank tokens may be separated by spaces and tabs, but not line breaks
+    assertMatch(ranks.find("Lt\tCol Smith").get(0), 0, 12, "Lt\tCol", "Smith");
+
+    List<RankDictionary.Match> matches = ranks.find("Lt\nCol Smith");
+    assertEquals(1, matches.size());
+    assertMatch(matches.get(0), 3, 12, "Col", "Smith");
+
+    matches = ranks.find("Lt \r\n Col Smith");
+    assertEquals(1, matches.size());
+    assertMatch(matches.get(0), 6, 15, "Col", "Smith");
+  }
+
+  @Test
+  public void testWith() {
+    RankDictionary british = new RankDictionary(List.of("Sgt", "Cpl"));
+    RankDictionary combined = british.with(List.of("Gunnery Sergeant", "Sgt"));
+
+    assertEquals(2, british.size());
+    assertEquals(3, combined.size());
+    assertTrue(british.find("Gunnery Sergeant Hartman").isEmpty());
+    assertMatch(
+        combined.find("Gunnery Sergeant Hartman").get(0),
+        0,
+        24,
+        "Gunnery Sergeant",
+        "Hartman");
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    String file = "# Comment\n\nSgt\n  Lt Col  \n#Cpl\n";
+    List<String> ranks =
+        RankDictionary.read(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(List.of("Sgt", "Lt Col"), ranks);
+  }
+
+  @Test
+  public void testBritish() {
+    assertTrue(RankDictionary.british().size() > 100);
+    assertSame(RankDictionary.british(), RankDictionary.british());
+  }
+
+  @Test
+  public void testEmptyRank() {
+    assertThrows(IllegalArgumentException.class, () -> new RankDictionary(List.of(" ")));
+  }
+
+  private static void assertMatch(
+      RankDictionary.Match m, int begin, int end, String rank, String name) {
+    assertEquals(begin, m.getBegin());
+    assertEquals(end, m.getEnd());
+    assertEquals(rank, m.getRank());
+    assertEquals(name, m.getName());
+  }
+}
@@ -7,6 +7,8 @@ module uk.gov.dstl.annot8.triage {
   requires io.annot8.conventions;
   requires io.annot8.components.stopwords;
   requires jakarta.json.bind;
+  requires uk.gov.dstl.annot8.utils.tokens;
 
   exports uk.gov.dstl.annot8.triage.processors;
+  exports uk.gov.dstl.annot8.triage.resources;
 }
@@ -0,0 +1,185 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import io.annot8.api.annotations.Annotation;
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.common.data.content.Text;
+import io.annot8.common.data.utils.SortUtils;
+import io.annot8.components.stopwords.resources.Stopwords;
+import io.annot8.conventions.AnnotationTypes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import uk.gov.dstl.annot8.triage.resources.DocumentFrequencies;
+import uk.gov.dstl.annot8.utils.tokens.LowerCaseCache;
+import uk.gov.dstl.annot8.utils.tokens.TokenView;
+
+/**
+ * Summarises a document that arrives as a sequence of chunks, scoring sentences in the same way as
+ * {@link TokenFrequencySummarisation} but without holding the whole document.
+ *
+ * <p>Token frequencies are updated as each chunk is added. Only a bounded set of candidate
+ * sentences is kept, holding their text and terms so that they can be rescored as the frequencies
+ * change. When the set reaches twice its size, every candidate is rescored with the current
+ * frequencies and the lowest scoring half discarded. Memory is therefore bounded by the number of
+ * candidates and the vocabulary, rather than by the length of the document.
+ *
+ * <p>A sentence discarded early can't be recovered if later chunks would have raised its score, so
+ * the summary may differ from that of {@link TokenFrequencySummarisation} on the whole document.
+ * More candidates make this less likely.
+ *
+ * <p>Sentences and tokens must be annotated within each chunk. This class is not thread safe.
+ */
+public class StreamingSummariser {
+  private final int numSentences;
+  private final int numCandidates;
+  private final Stopwords stopwords;
+  private final DocumentFrequencies documentFrequencies;
+
+  private TermTable tokenFrequency = new TermTable();
+  private double[] idf = new double[16];
+
+  // Kept across chunks and documents, so words seen before are lower cased without allocating
+  private final LowerCaseCache lowerCase = new LowerCaseCache();
+
+  // Held in the order the sentences occurred
+  private final List<Candidate> candidates = new ArrayList<>();
+
+  /**
+   * @param numSentences the number of sentences in the summary
+   * @param numCandidates the number of candidate sentences to keep, at least numSentences
+   * @param documentFrequencies if not null, tokens are weighted by TF-IDF rather than frequency
+   */
+  public StreamingSummariser(
+      int numSentences,
+      int numCandidates,
+      Stopwords stopwords,
+      DocumentFrequencies documentFrequencies) {
+    if (numSentences <= 0) throw new IllegalArgumentException("numSentences must be positive");
+    if (numCandidates < numSentences) {
+      throw new IllegalArgumentException("numCandidates must be at least numSentences");
+    }
+
+    this.numSentences = numSentences;
+    this.numCandidates = numCandidates;
+    this.stopwords = stopwords;
+    this.documentFrequencies = documentFrequencies;
+  }
+
+  /** Add the next chunk of the document, which must have sentence and word token annotations */
+  public void addChunk(Text chunk) {
+    TokenView tokens = TokenView.build(chunk, lowerCase);
+
+    int[] termIds = new int[tokens.size()];
+    for (int i = 0; i < tokens.size(); i++) {
+      String w = tokens.getLemma(i);
+      termIds[i] =
+          TokenFrequencySummarisation.Processor.isWord(w) && !stopwords.isStopword(w)
+              ? addTerm(w)
+              : -1;
+    }
+
+    List<Annotation> sentences =
+        chunk
+            .getAnnotations()
+            .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+            .sorted(SortUtils.SORT_BY_SPANBOUNDS)
+            .collect(Collectors.toList());
+
+    // Assign tokens to sentences with the same sweep as TokenFrequencySummarisation
+    int first = 0;
+    int[] terms = new int[tokens.size()];
+    for (Annotation s : sentences) {
+      SpanBounds sb = s.getBounds(SpanBounds.class).get();
+
+      while (first < tokens.size() && tokens.getBegin(first) < sb.getBegin()) first++;
+
+      int n = 0;
+      for (int i = first; i < tokens.size() && tokens.getBegin(i) < sb.getEnd(); i++) {
+        if (termIds[i] != -1 && tokens.getEnd(i) <= sb.getEnd()) terms[n++] = termIds[i];
+      }
+
+      candidates.add(new Candidate(chunk.getText(s).orElse(""), Arrays.copyOf(terms, n)));
+      if (candidates.size() >= 2 * numCandidates) retainTop(numCandidates);
+    }
+  }
+
+  /** Returns the summary of the chunks added so far. Further chunks can still be added. */
+  public String getSummary() {
+    return TokenFrequencySummarisation.Processor.createSummary(
+        Arrays.stream(selectTop(numSentences)).mapToObj(i -> candidates.get(i).text));
+  }
+
+  /** Discard all chunks added so far, ready for a new document */
+  public void reset() {
+    tokenFrequency = new TermTable();
+    idf = new double[16];
+    candidates.clear();
+  }
+
+  /** The number of candidate sentences currently held */
+  int getCandidateCount() {
+    return candidates.size();
+  }
+
+  private int addTerm(String term) {
+    int size = tokenFrequency.size();
+    int id = tokenFrequency.add(term);
+
+    // Look up the inverse document frequency once, when the term is first seen
+    if (tokenFrequency.size() > size) {
+      if (id == idf.length) idf = Arrays.copyOf(idf, idf.length * 2);
+      idf[id] =
+          documentFrequencies == null ? 1.0 : documentFrequencies.getInverseDocumentFrequency(term);
+    }
+
+    return id;
+  }
+
+  /** Rescore the candidates and keep the best k, in the order they occurred */
+  private void retainTop(int k) {
+    int[] top = selectTop(k);
+
+    List<Candidate> retained = new ArrayList<>(top.length);
+    for (int i : top) retained.add(candidates.get(i));
+
+    candidates.clear();
+    candidates.addAll(retained);
+  }
+
+  /** Rescore the candidates, and return the indices of the best k in ascending order */
+  private int[] selectTop(int k) {
+    double[] scores = new double[candidates.size()];
+    for (int i = 0; i < scores.length; i++) {
+      for (int t : candidates.get(i).terms) scores[i] += tokenFrequency.count(t) * idf[t];
+    }
+
+    // As candidates are held in order, ties are broken by position
+    return TopK.select(scores, k);
+  }
+
+  private static final class Candidate {
+    private final String text;
+    private final int[] terms;
+
+    private Candidate(String text, int[] terms) {
+      this.text = text;
+      this.terms = terms;
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.components.annotations.ComponentDescription;
+import io.annot8.api.components.annotations.ComponentName;
+import io.annot8.api.components.annotations.ComponentTags;
+import io.annot8.api.components.annotations.SettingsClass;
+import io.annot8.api.components.responses.ProcessorResponse;
+import io.annot8.api.context.Context;
+import io.annot8.api.data.Item;
+import io.annot8.api.settings.Description;
+import io.annot8.common.components.AbstractComponent;
+import io.annot8.common.components.AbstractProcessorDescriptor;
+import io.annot8.common.components.capabilities.SimpleCapabilities;
+import io.annot8.common.data.bounds.ContentBounds;
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.common.data.content.Text;
+import io.annot8.components.stopwords.resources.Stopwords;
+import io.annot8.components.stopwords.resources.StopwordsIso;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import uk.gov.dstl.annot8.triage.resources.DocumentFrequencies;
+
+@ComponentName("Streaming Token Frequency Summarisation")
+@ComponentDescription(
+    "Create a text summary of a document held as several chunks of text, by selecting the sentences with the most commonly occurring tokens")
+@ComponentTags({"triage", "summarisation", "sentence", "token", "frequency", "streaming"})
+@SettingsClass(StreamingTokenFrequencySummarisation.Settings.class)
+public class StreamingTokenFrequencySummarisation
+    extends AbstractProcessorDescriptor<
+        StreamingTokenFrequencySummarisation.Processor,
+        StreamingTokenFrequencySummarisation.Settings> {
+
+  @Override
+  protected Processor createComponent(Context context, Settings settings) {
+    Stopwords sw;
+    if (context == null || context.getResource(Stopwords.class).isEmpty()) {
+      sw = new StopwordsIso();
+    } else {
+      sw = context.getResource(Stopwords.class).get();
+    }
+
+    DocumentFrequencies df = null;
+    if (settings.getScoring() == TokenFrequencySummarisation.Scoring.TF_IDF && context != null) {
+      df = context.getResource(DocumentFrequencies.class).orElse(null);
+    }
+
+    return new Processor(
+        settings.getNumSentences(), settings.getNumCandidates(), sw, settings.getScoring(), df);
+  }
+
+  @Override
+  public Capabilities capabilities() {
+    return new SimpleCapabilities.Builder()
+        .withProcessesContent(Text.class)
+        .withProcessesAnnotations(AnnotationTypes.ANNOTATION_TYPE_SENTENCE, SpanBounds.class)
+        .withProcessesAnnotations(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN, SpanBounds.class)
+        .withCreatesAnnotations(AnnotationTypes.ANNOTATION_TYPE_SUMMARY, ContentBounds.class)
+        .build();
+  }
+
+  /**
+   * Treats the Text contents of each item that have a {@link #PROPERTY_KEY_CHUNK} property as
+   * chunks of a single document, and adds the summary of the whole document to the last chunk once
+   * all chunks have been read. Each chunk is read independently, so no annotations are held beyond
+   * the chunk being read.
+   *
+   * <p>The order of an item's contents isn't guaranteed, so chunks are read in order of their
+   * {@link #PROPERTY_KEY_CHUNK} property, which must be an integer index of the chunk within the
+   * document. Text contents without the property, such as the output of other processors, are
+   * ignored.
+   */
+  public static class Processor extends AbstractComponent
+      implements io.annot8.api.components.Processor {
+
+    /** The content property holding the index of a chunk within its document */
+    public static final String PROPERTY_KEY_CHUNK = "chunk";
+
+    private final StreamingSummariser summariser;
+
+    public Processor(int numSentences, int numCandidates, Stopwords stopwords) {
+      this(
+          numSentences,
+          numCandidates,
+          stopwords,
+          TokenFrequencySummarisation.Scoring.FREQUENCY,
+          null);
+    }
+
+    public Processor(
+        int numSentences,
+        int numCandidates,
+        Stopwords stopwords,
+        TokenFrequencySummarisation.Scoring scoring,
+        DocumentFrequencies documentFrequencies) {
+      if (scoring == TokenFrequencySummarisation.Scoring.TF_IDF && documentFrequencies == null) {
+        log().warn("No DocumentFrequencies resource available - scoring by FREQUENCY instead");
+      }
+
+      this.summariser =
+          new StreamingSummariser(
+              numSentences,
+              numCandidates,
+              stopwords,
+              scoring == TokenFrequencySummarisation.Scoring.TF_IDF ? documentFrequencies : null);
+    }
+
+    @Override
+    public ProcessorResponse process(Item item) {
+      summariser.reset();
+
+      List<Text> chunks =
+          item.getContents(Text.class)
+              .filter(t -> t.getProperties().has(PROPERTY_KEY_CHUNK, Number.class))
+              .sorted(Comparator.comparingLong(Processor::chunkIndex))
+              .collect(Collectors.toList());
+
+      for (Text chunk : chunks) {
+        summariser.addChunk(chunk);
+      }
+
+      if (!chunks.isEmpty()) {
+        Text last = chunks.get(chunks.size() - 1);
+        last.getAnnotations()
+            .create()
+            .withBounds(ContentBounds.getInstance())
+            .withType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+            .withProperty(PropertyKeys.PROPERTY_KEY_VALUE, summariser.getSummary())
+            .save();
+      }
+
+      return ProcessorResponse.ok();
+    }
+
+    private static long chunkIndex(Text chunk) {
+      return chunk.getProperties().get(PROPERTY_KEY_CHUNK, Number.class).get().longValue();
+    }
+  }
+
+  public static class Settings implements io.annot8.api.settings.Settings {
+    private int numSentences = 3;
+    private int numCandidates = 100;
+    private TokenFrequencySummarisation.Scoring scoring =
+        TokenFrequencySummarisation.Scoring.FREQUENCY;
+
+    @Description(value = "The number of sentences to select", defaultValue = "3")
+    public int getNumSentences() {
+      return numSentences;
+    }
+
+    public void setNumSentences(int numSentences) {
+      this.numSentences = numSentences;
+    }
+
+    @Description(
+        value = "The number of candidate sentences to keep while reading the document",
+        defaultValue = "100")
+    public int getNumCandidates() {
+      return numCandidates;
+    }
+
+    public void setNumCandidates(int numCandidates) {
+      this.numCandidates = numCandidates;
+    }
+
+    @Description(
+        value = "How tokens are weighted (TF_IDF requires a DocumentFrequencies resource)",
+        defaultValue = "FREQUENCY")
+    public TokenFrequencySummarisation.Scoring getScoring() {
+      return scoring;
+    }
+
+    public void setScoring(TokenFrequencySummarisation.Scoring scoring) {
+      this.scoring = scoring;
+    }
+
+    @Override
+    public boolean validate() {
+      return numSentences > 0 && numCandidates >= numSentences && scoring != null;
+    }
+  }
+}
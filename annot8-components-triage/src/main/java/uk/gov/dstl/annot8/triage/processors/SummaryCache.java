@@ -0,0 +1,417 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache of summaries, keyed by a hash of the text they summarise, so that repeated documents are
+ * only summarised once. A cache should only be shared by summarisers with the same settings.
+ *
+ * <p>The text itself isn't held. Instead, each summary also holds the length of its text and a
+ * second, independent, hash of it, which must both match as well as the key for the summary to be
+ * used for a document.
+ *
+ * <p>The cache holds at most maxSize summaries, discarding the least recently used when full, and
+ * a summary expires once it has been held for longer than the expiry.
+ *
+ * <p>Optionally, a document that isn't in the cache can be matched to a near duplicate that is.
+ * Each document has a MinHash signature of the sets of three consecutive words in it, and
+ * locality sensitive hashing on bands of the signature finds the cached documents likely to be
+ * similar. The summary of the most similar is used, if the estimated Jaccard similarity of the
+ * documents is at least the threshold.
+ *
+ * <p>This class is thread safe, although two threads missing on the same document at the same
+ * time will both summarise it.
+ */
+public class SummaryCache {
+  static final int NUM_HASHES = 64;
+  static final int ROWS_PER_BAND = 4;
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private final int maxSize;
+  private final long expiryMillis;
+  private final boolean nearDuplicates;
+  private final double similarityThreshold;
+  private final Clock clock;
+  private final ToLongFunction<CharSequence> keyHash;
+
+  private final LinkedHashMap<Long, Entry> entries;
+
+  // From the hash of each band of a signature to the entries with that band
+  private final Map<Long, List<Entry>> bands = new HashMap<>();
+
+  private long hits = 0;
+  private long nearDuplicateHits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /** A cache of exact duplicates only */
+  public SummaryCache(int maxSize, Duration expiry) {
+    this(maxSize, expiry, false, 1.0);
+  }
+
+  /**
+   * @param nearDuplicates whether to match documents to near duplicates in the cache
+   * @param similarityThreshold the estimated Jaccard similarity, between 0 and 1, at which a
+   *     document is a near duplicate
+   */
+  public SummaryCache(
+      int maxSize, Duration expiry, boolean nearDuplicates, double similarityThreshold) {
+    this(maxSize, expiry, nearDuplicates, similarityThreshold, Clock.systemUTC());
+  }
+
+  SummaryCache(
+      int maxSize,
+      Duration expiry,
+      boolean nearDuplicates,
+      double similarityThreshold,
+      Clock clock) {
+    this(maxSize, expiry, nearDuplicates, similarityThreshold, clock, SummaryCache::hash);
+  }
+
+  SummaryCache(
+      int maxSize,
+      Duration expiry,
+      boolean nearDuplicates,
+      double similarityThreshold,
+      Clock clock,
+      ToLongFunction<CharSequence> keyHash) {
+    if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+
+    this.maxSize = maxSize;
+    this.expiryMillis = expiry.toMillis();
+    this.nearDuplicates = nearDuplicates;
+    this.similarityThreshold = similarityThreshold;
+    this.clock = clock;
+    this.keyHash = keyHash;
+
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() <= SummaryCache.this.maxSize) return false;
+
+            unindex(eldest.getValue());
+            evictions++;
+            return true;
+          }
+        };
+  }
+
+  /**
+   * Returns the cached summary of the text, or of a near duplicate of it, or if there isn't one
+   * creates the summary with the summariser and caches it.
+   */
+  public String computeIfAbsent(String text, Supplier<String> summariser) {
+    long key = keyHash.applyAsLong(text);
+    long check = checkHash(text);
+
+    synchronized (this) {
+      String summary = getExact(key, text.length(), check);
+      if (summary != null) return summary;
+    }
+
+    // Only needed once there's no exact duplicate, and calculated outside the lock
+    long[] signature = nearDuplicates ? signature(text) : null;
+
+    synchronized (this) {
+      String summary = signature == null ? null : getNearDuplicate(signature);
+      if (summary != null) return summary;
+
+      misses++;
+    }
+
+    // Summarise outside the lock, so that other documents can still be looked up
+    String summary = summariser.get();
+
+    synchronized (this) {
+      put(key, text.length(), check, signature, summary);
+    }
+
+    return summary;
+  }
+
+  /** The number of documents found in the cache, including near duplicates */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /** The number of documents found in the cache as near duplicates */
+  public synchronized long getNearDuplicateHitCount() {
+    return nearDuplicateHits;
+  }
+
+  /** The number of documents not found in the cache */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /** The number of summaries discarded because the cache was full or they had expired */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /** The number of summaries held, including any that have expired but not yet been discarded */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    bands.clear();
+  }
+
+  private String getExact(long key, int length, long check) {
+    long now = clock.millis();
+
+    // An entry for a different text with the same key is left to be replaced by this one
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      if (isExpired(entry, now)) {
+        remove(key);
+      } else if (entry.length == length && entry.check == check) {
+        hits++;
+        return entry.summary;
+      }
+    }
+
+    return null;
+  }
+
+  private String getNearDuplicate(long[] signature) {
+    Entry nearest = findNearDuplicate(signature, clock.millis());
+    if (nearest == null) return null;
+
+    // Looked up again to mark it as recently used
+    entries.get(nearest.key);
+
+    hits++;
+    nearDuplicateHits++;
+    return nearest.summary;
+  }
+
+  private Entry findNearDuplicate(long[] signature, long now) {
+    Entry nearest = null;
+    double nearestSimilarity = similarityThreshold;
+
+    List<Entry> expired = new ArrayList<>();
+    for (int b = 0; b < NUM_HASHES / ROWS_PER_BAND; b++) {
+      List<Entry> candidates = bands.get(bandHash(signature, b));
+      if (candidates == null) continue;
+
+      for (Entry candidate : candidates) {
+        if (isExpired(candidate, now)) {
+          expired.add(candidate);
+          continue;
+        }
+
+        double similarity = similarity(signature, candidate.signature);
+        if (similarity >= nearestSimilarity) {
+          nearest = candidate;
+          nearestSimilarity = similarity;
+        }
+      }
+    }
+
+    for (Entry entry : expired) remove(entry.key);
+
+    return nearest;
+  }
+
+  private void put(long key, int length, long check, long[] signature, String summary) {
+    Entry entry = new Entry(key, length, check, summary, signature, clock.millis());
+
+    Entry previous = entries.put(key, entry);
+    if (previous != null) unindex(previous);
+    index(entry);
+  }
+
+  private void remove(long key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      unindex(entry);
+      evictions++;
+    }
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return now - entry.created > expiryMillis;
+  }
+
+  private void index(Entry entry) {
+    if (entry.signature == null) return;
+
+    for (int b = 0; b < NUM_HASHES / ROWS_PER_BAND; b++) {
+      bands.computeIfAbsent(bandHash(entry.signature, b), k -> new ArrayList<>(1)).add(entry);
+    }
+  }
+
+  private void unindex(Entry entry) {
+    if (entry.signature == null) return;
+
+    for (int b = 0; b < NUM_HASHES / ROWS_PER_BAND; b++) {
+      long hash = bandHash(entry.signature, b);
+      List<Entry> band = bands.get(hash);
+      if (band == null) continue;
+
+      band.remove(entry);
+      if (band.isEmpty()) bands.remove(hash);
+    }
+  }
+
+  /** A 64 bit hash of the text, mixing four characters at a time as in MurmurHash3 */
+  static long hash(CharSequence text) {
+    long h = text.length();
+
+    int i = 0;
+    for (; i + 4 <= text.length(); i += 4) {
+      long k =
+          text.charAt(i)
+              | (long) text.charAt(i + 1) << 16
+              | (long) text.charAt(i + 2) << 32
+              | (long) text.charAt(i + 3) << 48;
+      h ^= mixKey(k);
+      h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+
+    long k = 0;
+    for (int shift = 0; i < text.length(); i++, shift += 16) k |= (long) text.charAt(i) << shift;
+    h ^= mixKey(k);
+
+    return fmix(h);
+  }
+
+  /** A second 64 bit hash of the text, independent of {@link #hash}, using FNV-1a */
+  static long checkHash(CharSequence text) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      h = (h ^ (c & 0xff)) * 0x100000001b3L;
+      h = (h ^ (c >>> 8)) * 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /**
+   * The MinHash signature of the sets of three consecutive words in the text, ignoring case. The
+   * NUM_HASHES hash functions are derived from two hashes of each set of words.
+   */
+  static long[] signature(String text) {
+    long[] signature = new long[NUM_HASHES];
+    Arrays.fill(signature, Long.MAX_VALUE);
+
+    long w1 = 0;
+    long w2 = 0;
+    long word = 0;
+    int words = 0;
+    boolean inWord = false;
+
+    for (int i = 0; i <= text.length(); i++) {
+      char c = i < text.length() ? text.charAt(i) : ' ';
+
+      if (Character.isLetterOrDigit(c)) {
+        word = 31 * word + Character.toLowerCase(c);
+        inWord = true;
+      } else if (inWord) {
+        long w0 = fmix(word);
+        if (++words >= 3) addShingle(signature, w0, w1, w2);
+
+        w2 = w1;
+        w1 = w0;
+        word = 0;
+        inWord = false;
+      }
+    }
+
+    // Documents of one or two words have a single, shorter, shingle
+    if (words > 0 && words < 3) addShingle(signature, w1, w2, 0);
+
+    return signature;
+  }
+
+  private static void addShingle(long[] signature, long w0, long w1, long w2) {
+    long h1 = fmix(w0 ^ Long.rotateLeft(w1, 21) ^ Long.rotateLeft(w2, 42));
+    long h2 = fmix(h1 ^ C2) | 1L;
+
+    for (int n = 0; n < NUM_HASHES; n++) {
+      long h = h1 + n * h2;
+      if (h < signature[n]) signature[n] = h;
+    }
+  }
+
+  /** The estimated Jaccard similarity of the documents with the signatures */
+  static double similarity(long[] signature1, long[] signature2) {
+    int same = 0;
+    for (int n = 0; n < NUM_HASHES; n++) {
+      if (signature1[n] == signature2[n]) same++;
+    }
+
+    return (double) same / NUM_HASHES;
+  }
+
+  private static long bandHash(long[] signature, int band) {
+    long h = band;
+    for (int r = band * ROWS_PER_BAND; r < (band + 1) * ROWS_PER_BAND; r++) {
+      h = fmix(h ^ signature[r]);
+    }
+    return h;
+  }
+
+  private static long mixKey(long k) {
+    k *= C1;
+    k = Long.rotateLeft(k, 31);
+    return k * C2;
+  }
+
+  private static long fmix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    return h ^ (h >>> 33);
+  }
+
+  private static final class Entry {
+    private final long key;
+    private final int length;
+    private final long check;
+    private final String summary;
+    private final long[] signature;
+    private final long created;
+
+    private Entry(
+        long key, int length, long check, String summary, long[] signature, long created) {
+      this.key = key;
+      this.length = length;
+      this.check = check;
+      this.summary = summary;
+      this.signature = signature;
+      this.created = created;
+    }
+  }
+}
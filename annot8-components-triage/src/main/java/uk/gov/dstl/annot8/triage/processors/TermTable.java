@@ -0,0 +1,146 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import java.util.Arrays;
+
+/**
+ * Frequency table of terms, which gives each distinct term an id (0, 1, 2... in the order they are
+ * first added) and counts how many times it has been added. Counts are held as primitive ints, so
+ * counting doesn't box.
+ *
+ * <p>This class is not thread safe.
+ */
+final class TermTable {
+  private static final int EMPTY = -1;
+
+  // Open addressing with linear probing, holding term ids and kept at most half full
+  private int[] slots;
+
+  private String[] terms;
+  private int[] hashes;
+  private int[] counts;
+  private int size = 0;
+
+  TermTable() {
+    this(16);
+  }
+
+  TermTable(int expectedSize) {
+    int capacity = 16;
+    while (capacity < 2 * expectedSize) capacity <<= 1;
+
+    slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+
+    terms = new String[capacity / 2];
+    hashes = new int[capacity / 2];
+    counts = new int[capacity / 2];
+  }
+
+  /** Add an occurrence of the term, and return its id */
+  int add(String term) {
+    return add(term, 1);
+  }
+
+  /** Add a number of occurrences of the term, and return its id */
+  int add(String term, int count) {
+    int hash = hash(term);
+    int mask = slots.length - 1;
+
+    int i = hash & mask;
+    while (slots[i] != EMPTY) {
+      int id = slots[i];
+      if (hashes[id] == hash && terms[id].equals(term)) {
+        counts[id] += count;
+        return id;
+      }
+      i = (i + 1) & mask;
+    }
+
+    if (size == terms.length) {
+      resize();
+      mask = slots.length - 1;
+      i = hash & mask;
+      while (slots[i] != EMPTY) i = (i + 1) & mask;
+    }
+
+    int id = size++;
+    terms[id] = term;
+    hashes[id] = hash;
+    counts[id] = count;
+    slots[i] = id;
+
+    return id;
+  }
+
+  /** Returns the id of the term, or -1 if it hasn't been added */
+  int id(String term) {
+    int hash = hash(term);
+    int mask = slots.length - 1;
+
+    for (int i = hash & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+      int id = slots[i];
+      if (hashes[id] == hash && terms[id].equals(term)) return id;
+    }
+
+    return EMPTY;
+  }
+
+  /** Returns the number of times the term has been added */
+  int count(String term) {
+    int id = id(term);
+    return id == EMPTY ? 0 : counts[id];
+  }
+
+  int count(int id) {
+    return counts[id];
+  }
+
+  String term(int id) {
+    return terms[id];
+  }
+
+  /** The number of distinct terms */
+  int size() {
+    return size;
+  }
+
+  private void resize() {
+    int capacity = slots.length * 2;
+
+    slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+
+    terms = Arrays.copyOf(terms, capacity / 2);
+    hashes = Arrays.copyOf(hashes, capacity / 2);
+    counts = Arrays.copyOf(counts, capacity / 2);
+
+    int mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int i = hashes[id] & mask;
+      while (slots[i] != EMPTY) i = (i + 1) & mask;
+      slots[i] = id;
+    }
+  }
+
+  private static int hash(String term) {
+    int h = term.hashCode();
+
+    // Spread the high bits into the low bits used to index the table
+    return h ^ (h >>> 16);
+  }
+}
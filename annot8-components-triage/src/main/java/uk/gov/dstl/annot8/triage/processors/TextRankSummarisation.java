@@ -0,0 +1,434 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import io.annot8.api.annotations.Annotation;
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.components.annotations.ComponentDescription;
+import io.annot8.api.components.annotations.ComponentName;
+import io.annot8.api.components.annotations.ComponentTags;
+import io.annot8.api.components.annotations.SettingsClass;
+import io.annot8.api.context.Context;
+import io.annot8.api.settings.Description;
+import io.annot8.common.components.AbstractProcessorDescriptor;
+import io.annot8.common.components.capabilities.SimpleCapabilities;
+import io.annot8.common.data.bounds.ContentBounds;
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.common.data.content.Text;
+import io.annot8.common.data.utils.SortUtils;
+import io.annot8.components.base.text.processors.AbstractTextProcessor;
+import io.annot8.components.stopwords.resources.Stopwords;
+import io.annot8.components.stopwords.resources.StopwordsIso;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import uk.gov.dstl.annot8.utils.tokens.LowerCaseCache;
+import uk.gov.dstl.annot8.utils.tokens.TokenView;
+
+@ComponentName("TextRank Summarisation")
+@ComponentDescription(
+    "Create a text summary of a document by selecting the most central sentences, ranked by TextRank over the similarity of the sentences")
+@ComponentTags({"triage", "summarisation", "sentence", "token", "textrank"})
+@SettingsClass(TextRankSummarisation.Settings.class)
+public class TextRankSummarisation
+    extends AbstractProcessorDescriptor<
+        TextRankSummarisation.Processor, TextRankSummarisation.Settings> {
+
+  @Override
+  protected Processor createComponent(Context context, Settings settings) {
+    Stopwords sw;
+    if (context == null || context.getResource(Stopwords.class).isEmpty()) {
+      sw = new StopwordsIso();
+    } else {
+      sw = context.getResource(Stopwords.class).get();
+    }
+
+    return new Processor(
+        settings.getNumSentences(),
+        sw,
+        settings.getDampingFactor(),
+        settings.getMaxIterations(),
+        settings.getTolerance(),
+        settings.getMaxTermFraction());
+  }
+
+  @Override
+  public Capabilities capabilities() {
+    return new SimpleCapabilities.Builder()
+        .withProcessesContent(Text.class)
+        .withProcessesAnnotations(AnnotationTypes.ANNOTATION_TYPE_SENTENCE, SpanBounds.class)
+        .withProcessesAnnotations(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN, SpanBounds.class)
+        .withCreatesAnnotations(AnnotationTypes.ANNOTATION_TYPE_SUMMARY, ContentBounds.class)
+        .build();
+  }
+
+  /**
+   * Ranks sentences with TextRank (Mihalcea and Tarau, 2004), where two sentences are similar if
+   * they share terms. The similarity of sentences i and j is the number of distinct terms they
+   * share, divided by {@code log(|i|) + log(|j|)}.
+   *
+   * <p>Rather than comparing every pair of sentences, an inverted index from each term to the
+   * sentences containing it is used to find only the pairs that share a term, so the similarity
+   * graph is built in time proportional to its number of edges. Ranks are found by power iteration,
+   * stopping when no rank changes by more than the tolerance.
+   *
+   * <p>Terms occurring in most sentences link nearly every pair of sentences, making the graph
+   * close to complete. Setting maxTermFraction below 1 ignores terms occurring in more than that
+   * fraction of the sentences when linking them, which keeps the graph sparse on long documents.
+   *
+   * <p>Working arrays are kept between documents, so this class is not thread safe.
+   */
+  public static class Processor extends AbstractTextProcessor {
+
+    private final int numSentences;
+    private final Stopwords stopwords;
+    private final double dampingFactor;
+    private final int maxIterations;
+    private final double tolerance;
+    private final double maxTermFraction;
+
+    // Working arrays, reused between documents
+    private int[] overlap = new int[0];
+    private int[] touched = new int[0];
+    private double[] ranks = new double[0];
+    private double[] nextRanks = new double[0];
+    private final LowerCaseCache lowerCase = new LowerCaseCache();
+
+    public Processor(int numSentences, Stopwords stopwords) {
+      this(numSentences, stopwords, 0.85, 100, 1e-6, 1.0);
+    }
+
+    public Processor(
+        int numSentences,
+        Stopwords stopwords,
+        double dampingFactor,
+        int maxIterations,
+        double tolerance,
+        double maxTermFraction) {
+      this.numSentences = numSentences;
+      this.stopwords = stopwords;
+      this.dampingFactor = dampingFactor;
+      this.maxIterations = maxIterations;
+      this.tolerance = tolerance;
+      this.maxTermFraction = maxTermFraction;
+    }
+
+    @Override
+    protected void process(Text content) {
+      List<Annotation> sentences =
+          content
+              .getAnnotations()
+              .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+              .sorted(SortUtils.SORT_BY_SPANBOUNDS)
+              .collect(Collectors.toList());
+      int n = sentences.size();
+
+      TermTable termTable = new TermTable();
+      int[] sentenceStart = new int[n + 1];
+      int[] sentenceTerms = findSentenceTerms(content, sentences, termTable, sentenceStart);
+
+      int[] postingStart = new int[termTable.size() + 1];
+      int[] postings = buildInvertedIndex(sentenceStart, sentenceTerms, postingStart);
+
+      // Find the pairs of sentences that share at least one term, and their similarity. Each pair
+      // is found once, from the earlier sentence.
+      ensureCapacity(n);
+      int[] edgeFrom = new int[16];
+      int[] edgeTo = new int[16];
+      double[] edgeWeight = new double[16];
+      int edges = 0;
+      int maxPostings = maxTermFraction >= 1.0 ? n : (int) (maxTermFraction * n);
+
+      for (int i = 0; i < n; i++) {
+        int touchedCount = 0;
+
+        for (int k = sentenceStart[i]; k < sentenceStart[i + 1]; k++) {
+          int t = sentenceTerms[k];
+          if (postingStart[t + 1] - postingStart[t] > maxPostings) continue;
+
+          // Postings are in ascending order, so start after this sentence
+          int from = Arrays.binarySearch(postings, postingStart[t], postingStart[t + 1], i) + 1;
+          for (int p = from; p < postingStart[t + 1]; p++) {
+            int j = postings[p];
+            if (overlap[j]++ == 0) touched[touchedCount++] = j;
+          }
+        }
+
+        for (int k = 0; k < touchedCount; k++) {
+          int j = touched[k];
+
+          if (edges == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edges * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edges * 2);
+            edgeWeight = Arrays.copyOf(edgeWeight, edges * 2);
+          }
+
+          edgeFrom[edges] = i;
+          edgeTo[edges] = j;
+          edgeWeight[edges] =
+              similarity(
+                  overlap[j],
+                  sentenceStart[i + 1] - sentenceStart[i],
+                  sentenceStart[j + 1] - sentenceStart[j]);
+          edges++;
+
+          overlap[j] = 0;
+        }
+      }
+
+      // Store the (undirected) graph as adjacency lists
+      int[] neighbourStart = new int[n + 1];
+      for (int e = 0; e < edges; e++) {
+        neighbourStart[edgeFrom[e] + 1]++;
+        neighbourStart[edgeTo[e] + 1]++;
+      }
+      for (int i = 0; i < n; i++) neighbourStart[i + 1] += neighbourStart[i];
+
+      int[] neighbours = new int[2 * edges];
+      double[] weights = new double[2 * edges];
+      double[] totalWeight = new double[n];
+      int[] next = Arrays.copyOf(neighbourStart, n);
+      for (int e = 0; e < edges; e++) {
+        int i = edgeFrom[e];
+        int j = edgeTo[e];
+        double w = edgeWeight[e];
+
+        neighbours[next[i]] = j;
+        weights[next[i]++] = w;
+        neighbours[next[j]] = i;
+        weights[next[j]++] = w;
+
+        totalWeight[i] += w;
+        totalWeight[j] += w;
+      }
+
+      double[] sentenceRanks = rank(n, neighbourStart, neighbours, weights, totalWeight);
+
+      List<Annotation> topSentences =
+          Arrays.stream(TopK.select(sentenceRanks, numSentences))
+              .mapToObj(sentences::get)
+              .collect(Collectors.toList());
+
+      String summary =
+          TokenFrequencySummarisation.Processor.createSummary(
+              topSentences.stream().map(s -> content.getText(s).orElse("")));
+
+      content
+          .getAnnotations()
+          .create()
+          .withBounds(ContentBounds.getInstance())
+          .withType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+          .withProperty(PropertyKeys.PROPERTY_KEY_VALUE, summary)
+          .save();
+    }
+
+    /**
+     * Find the distinct terms of each sentence, returned in ascending order of term id with the
+     * terms of sentence i between sentenceStart[i] and sentenceStart[i + 1].
+     */
+    private int[] findSentenceTerms(
+        Text content, List<Annotation> sentences, TermTable termTable, int[] sentenceStart) {
+      TokenView tokens = TokenView.build(content, lowerCase);
+
+      int[] termIds = new int[tokens.size()];
+      for (int i = 0; i < tokens.size(); i++) {
+        String w = tokens.getLemma(i);
+        termIds[i] =
+            TokenFrequencySummarisation.Processor.isWord(w) && !stopwords.isStopword(w)
+                ? termTable.add(w)
+                : -1;
+      }
+
+      // Assign tokens to sentences with the same sweep as TokenFrequencySummarisation
+      int[] sentenceTerms = new int[Math.max(16, tokens.size())];
+      int size = 0;
+      int first = 0;
+      for (int s = 0; s < sentences.size(); s++) {
+        SpanBounds sb = sentences.get(s).getBounds(SpanBounds.class).get();
+
+        while (first < tokens.size() && tokens.getBegin(first) < sb.getBegin()) first++;
+
+        int start = size;
+        for (int i = first; i < tokens.size() && tokens.getBegin(i) < sb.getEnd(); i++) {
+          if (termIds[i] != -1 && tokens.getEnd(i) <= sb.getEnd()) {
+            if (size == sentenceTerms.length) {
+              sentenceTerms = Arrays.copyOf(sentenceTerms, size * 2);
+            }
+            sentenceTerms[size++] = termIds[i];
+          }
+        }
+
+        // Remove repeated terms
+        Arrays.sort(sentenceTerms, start, size);
+        int end = start;
+        for (int k = start; k < size; k++) {
+          if (k == start || sentenceTerms[k] != sentenceTerms[k - 1]) {
+            sentenceTerms[end++] = sentenceTerms[k];
+          }
+        }
+        size = end;
+
+        sentenceStart[s + 1] = size;
+      }
+
+      return sentenceTerms;
+    }
+
+    /**
+     * Build an index from each term to the sentences that contain it, in ascending order, with the
+     * sentences containing term t between postingStart[t] and postingStart[t + 1].
+     */
+    private static int[] buildInvertedIndex(
+        int[] sentenceStart, int[] sentenceTerms, int[] postingStart) {
+      int n = sentenceStart.length - 1;
+      int size = sentenceStart[n];
+
+      for (int k = 0; k < size; k++) postingStart[sentenceTerms[k] + 1]++;
+      for (int t = 1; t < postingStart.length; t++) postingStart[t] += postingStart[t - 1];
+
+      int[] postings = new int[size];
+      int[] next = Arrays.copyOf(postingStart, postingStart.length - 1);
+      for (int s = 0; s < n; s++) {
+        for (int k = sentenceStart[s]; k < sentenceStart[s + 1]; k++) {
+          postings[next[sentenceTerms[k]]++] = s;
+        }
+      }
+
+      return postings;
+    }
+
+    /** Rank the sentences by power iteration */
+    private double[] rank(
+        int n, int[] neighbourStart, int[] neighbours, double[] weights, double[] totalWeight) {
+      double[] current = ranks;
+      double[] next = nextRanks;
+      Arrays.fill(current, 0, n, 1.0);
+
+      int iteration = 0;
+      double change = Double.POSITIVE_INFINITY;
+      while (iteration < maxIterations && change > tolerance) {
+        change = 0.0;
+
+        for (int i = 0; i < n; i++) {
+          double sum = 0.0;
+          for (int k = neighbourStart[i]; k < neighbourStart[i + 1]; k++) {
+            int j = neighbours[k];
+            sum += weights[k] / totalWeight[j] * current[j];
+          }
+
+          next[i] = (1.0 - dampingFactor) + dampingFactor * sum;
+          change = Math.max(change, Math.abs(next[i] - current[i]));
+        }
+
+        double[] swap = current;
+        current = next;
+        next = swap;
+        iteration++;
+      }
+
+      log().debug("TextRank stopped after {} iterations, with a change of {}", iteration, change);
+
+      return Arrays.copyOf(current, n);
+    }
+
+    private void ensureCapacity(int n) {
+      if (overlap.length < n) {
+        overlap = new int[n];
+        touched = new int[n];
+        ranks = new double[n];
+        nextRanks = new double[n];
+      }
+    }
+
+    static double similarity(int overlap, int length1, int length2) {
+      double norm = Math.log(length1) + Math.log(length2);
+
+      // Sentences with a single term have no length normalisation
+      return norm > 0.0 ? overlap / norm : overlap;
+    }
+  }
+
+  public static class Settings implements io.annot8.api.settings.Settings {
+    private int numSentences = 3;
+    private double dampingFactor = 0.85;
+    private int maxIterations = 100;
+    private double tolerance = 1e-6;
+    private double maxTermFraction = 1.0;
+
+    @Description(value = "The number of sentences to select", defaultValue = "3")
+    public int getNumSentences() {
+      return numSentences;
+    }
+
+    public void setNumSentences(int numSentences) {
+      this.numSentences = numSentences;
+    }
+
+    @Description(
+        value = "The probability of following a link between sentences, between 0 and 1",
+        defaultValue = "0.85")
+    public double getDampingFactor() {
+      return dampingFactor;
+    }
+
+    public void setDampingFactor(double dampingFactor) {
+      this.dampingFactor = dampingFactor;
+    }
+
+    @Description(value = "The maximum number of iterations when ranking", defaultValue = "100")
+    public int getMaxIterations() {
+      return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+      this.maxIterations = maxIterations;
+    }
+
+    @Description(
+        value = "Ranking stops once no sentence's rank changes by more than this",
+        defaultValue = "1e-6")
+    public double getTolerance() {
+      return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+      this.tolerance = tolerance;
+    }
+
+    @Description(
+        value = "Ignore terms in more than this fraction of the sentences when linking them",
+        defaultValue = "1.0")
+    public double getMaxTermFraction() {
+      return maxTermFraction;
+    }
+
+    public void setMaxTermFraction(double maxTermFraction) {
+      this.maxTermFraction = maxTermFraction;
+    }
+
+    @Override
+    public boolean validate() {
+      return numSentences > 0
+          && dampingFactor >= 0.0
+          && dampingFactor <= 1.0
+          && maxIterations > 0
+          && tolerance >= 0.0
+          && maxTermFraction > 0.0;
+    }
+  }
+}
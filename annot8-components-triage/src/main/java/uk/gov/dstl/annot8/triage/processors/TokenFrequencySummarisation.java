@@ -36,11 +36,16 @@ import io.annot8.conventions.AnnotationTypes;
 import io.annot8.conventions.PropertyKeys;
 import jakarta.json.bind.annotation.JsonbCreator;
 import jakarta.json.bind.annotation.JsonbProperty;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import uk.gov.dstl.annot8.triage.resources.DocumentFrequencies;
+import uk.gov.dstl.annot8.utils.tokens.LowerCaseCache;
+import uk.gov.dstl.annot8.utils.tokens.TokenView;
 
 @ComponentName("Token Frequency Summarisation")
 @ComponentDescription(
@@ -59,7 +64,24 @@ public class TokenFrequencySummarisation
     } else {
       sw = context.getResource(Stopwords.class).get();
     }
-    return new Processor(settings.getNumSentences(), sw);
+
+    DocumentFrequencies df = null;
+    if (settings.getScoring() == Scoring.TF_IDF && context != null) {
+      df = context.getResource(DocumentFrequencies.class).orElse(null);
+    }
+
+    SummaryCache cache = null;
+    if (settings.getCacheSize() > 0) {
+      cache =
+          new SummaryCache(
+              settings.getCacheSize(),
+              Duration.ofSeconds(settings.getCacheExpiry()),
+              settings.isCacheNearDuplicates(),
+              settings.getNearDuplicateSimilarity());
+    }
+
+    return new Processor(
+        settings.getNumSentences(), sw, settings.getScoring(), df, settings.isParallel(), cache);
   }
 
   @Override
@@ -72,102 +94,299 @@ public class TokenFrequencySummarisation
         .build();
   }
 
+  /** How the tokens in a sentence are weighted when scoring the sentence */
+  public enum Scoring {
+    /** The number of times the token occurs in the document */
+    FREQUENCY,
+    /**
+     * The number of times the token occurs in the document, multiplied by its inverse document
+     * frequency in a corpus. Requires a {@link DocumentFrequencies} resource.
+     */
+    TF_IDF
+  }
+
   public static class Processor extends AbstractTextProcessor {
 
     private final int numSentences;
     private final Stopwords stopwords;
+    private final DocumentFrequencies documentFrequencies;
+    private final boolean parallel;
+    private final SummaryCache summaryCache;
+
+    // Kept between documents, so words that have been seen before are lower cased without
+    // allocating. This makes the processor unsafe to share between threads.
+    private final LowerCaseCache lowerCase = new LowerCaseCache();
 
     private static final List<String> END_OF_SENTENCE = Arrays.asList(".", "!", "?");
 
+    // Below this many tokens, splitting the work between threads costs more than it saves
+    static final int PARALLEL_THRESHOLD = 10000;
+
     public Processor(int numSentences, Stopwords stopwords) {
+      this(numSentences, stopwords, Scoring.FREQUENCY, null);
+    }
+
+    public Processor(
+        int numSentences,
+        Stopwords stopwords,
+        Scoring scoring,
+        DocumentFrequencies documentFrequencies) {
+      this(numSentences, stopwords, scoring, documentFrequencies, false);
+    }
+
+    public Processor(
+        int numSentences,
+        Stopwords stopwords,
+        Scoring scoring,
+        DocumentFrequencies documentFrequencies,
+        boolean parallel) {
+      this(numSentences, stopwords, scoring, documentFrequencies, parallel, null);
+    }
+
+    /**
+     * @param summaryCache if not null, summaries are cached and reused for repeated documents. The
+     *     cache should only be shared with processors with the same settings.
+     */
+    public Processor(
+        int numSentences,
+        Stopwords stopwords,
+        Scoring scoring,
+        DocumentFrequencies documentFrequencies,
+        boolean parallel,
+        SummaryCache summaryCache) {
       this.numSentences = numSentences;
       this.stopwords = stopwords;
+      this.parallel = parallel;
+      this.summaryCache = summaryCache;
+
+      if (scoring == Scoring.TF_IDF && documentFrequencies == null) {
+        log().warn("No DocumentFrequencies resource available - scoring by FREQUENCY instead");
+      }
+      this.documentFrequencies = scoring == Scoring.TF_IDF ? documentFrequencies : null;
     }
 
     @Override
     protected void process(Text content) {
-      Map<String, Integer> tokenFrequency = new HashMap<>();
-      Map<Annotation, Integer> sentenceScores = new HashMap<>();
+      String summary =
+          summaryCache == null
+              ? summarise(content)
+              : summaryCache.computeIfAbsent(content.getData(), () -> summarise(content));
 
-      // Score all tokens
       content
           .getAnnotations()
-          .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
-          .map(a -> getLemma(content, a))
-          .filter(w -> !stopwords.isStopword(w))
-          .filter(w -> w.matches(("[a-z][-a-z0-9]*"))) // Ignore punctuation, just numbers, etc.
-          .forEach(w -> tokenFrequency.merge(w, 1, Integer::sum));
+          .create()
+          .withBounds(ContentBounds.getInstance())
+          .withType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+          .withProperty(PropertyKeys.PROPERTY_KEY_VALUE, summary)
+          .save();
+    }
 
-      // Score each sentence, ignoring stop words
-      content
-          .getAnnotations()
-          .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
-          .forEach(
-              s -> {
-                SpanBounds sb = s.getBounds(SpanBounds.class).get();
+    @Override
+    public void close() {
+      if (summaryCache != null) {
+        log()
+            .info(
+                "Summary cache had {} hits ({} near duplicates), {} misses and {} evictions",
+                summaryCache.getHitCount(),
+                summaryCache.getNearDuplicateHitCount(),
+                summaryCache.getMissCount(),
+                summaryCache.getEvictionCount());
+      }
+    }
+
+    private String summarise(Text content) {
+      // Find the term of each token once, in the order they appear. Tokens that aren't scored
+      // (stop words, punctuation, just numbers, etc.) have a term id of -1.
+      TokenView tokens = TokenView.build(content, lowerCase);
+      int[] termIds = new int[tokens.size()];
+
+      // The document is split into ranges of tokens (and later sentences) to share between threads
+      int parts =
+          parallel && tokens.size() >= PARALLEL_THRESHOLD
+              ? 4 * ForkJoinPool.getCommonPoolParallelism()
+              : 1;
+
+      TermTable tokenFrequency;
+      if (parts == 1) {
+        tokenFrequency = countTerms(tokens, 0, tokens.size(), termIds);
+      } else {
+        // Count each range into its own table, then merge the tables in order so that terms get
+        // the same ids as they would if counted sequentially
+        List<TermTable> tables =
+            IntStream.range(0, parts)
+                .parallel()
+                .mapToObj(
+                    p ->
+                        countTerms(
+                            tokens,
+                            start(p, parts, tokens.size()),
+                            start(p + 1, parts, tokens.size()),
+                            termIds))
+                .collect(Collectors.toList());
+
+        tokenFrequency = new TermTable();
+        int[][] globalIds = new int[parts][];
+        for (int p = 0; p < parts; p++) {
+          TermTable table = tables.get(p);
+          globalIds[p] = new int[table.size()];
+          for (int t = 0; t < table.size(); t++) {
+            globalIds[p][t] = tokenFrequency.add(table.term(t), table.count(t));
+          }
+        }
+
+        IntStream.range(0, parts)
+            .parallel()
+            .forEach(
+                p -> {
+                  int to = start(p + 1, parts, tokens.size());
+                  for (int i = start(p, parts, tokens.size()); i < to; i++) {
+                    if (termIds[i] != -1) termIds[i] = globalIds[p][termIds[i]];
+                  }
+                });
+      }
+
+      List<Annotation> sentences =
+          content
+              .getAnnotations()
+              .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+              .sorted(SortUtils.SORT_BY_SPANBOUNDS)
+              .collect(Collectors.toList());
 
-                int score =
-                    content
-                        .getBetween(sb.getBegin(), sb.getEnd())
-                        .filter(a -> AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN.equals(a.getType()))
-                        .map(a -> getLemma(content, a))
-                        .filter(w -> !stopwords.isStopword(w))
-                        .filter(w -> w.matches(("[a-z][-a-z0-9]*")))
-                        .mapToInt(tokenFrequency::get)
-                        .sum();
+      // Weight each term, looking up its document frequency once
+      double[] weights = new double[tokenFrequency.size()];
+      for (int t = 0; t < weights.length; t++) {
+        weights[t] = tokenFrequency.count(t);
+        if (documentFrequencies != null) {
+          weights[t] *= documentFrequencies.getInverseDocumentFrequency(tokenFrequency.term(t));
+        }
+      }
 
-                sentenceScores.put(s, score);
-              });
+      // Each sentence is scored independently, summing the weights of its tokens in order, so the
+      // scores are the same however the sentences are split between threads
+      double[] sentenceScores = new double[sentences.size()];
+      if (parts == 1) {
+        scoreSentences(sentences, 0, sentences.size(), tokens, termIds, weights, sentenceScores);
+      } else {
+        IntStream.range(0, parts)
+            .parallel()
+            .forEach(
+                p ->
+                    scoreSentences(
+                        sentences,
+                        start(p, parts, sentences.size()),
+                        start(p + 1, parts, sentences.size()),
+                        tokens,
+                        termIds,
+                        weights,
+                        sentenceScores));
+      }
 
       // Read top X sentences
       List<Annotation> topSentences =
-          sentenceScores.entrySet().stream()
-              .sorted((e1, e2) -> -Double.compare(e1.getValue(), e2.getValue()))
-              .limit(numSentences)
-              .map(Map.Entry::getKey)
-              .sorted(SortUtils.SORT_BY_SPANBOUNDS)
+          Arrays.stream(TopK.select(sentenceScores, numSentences))
+              .mapToObj(sentences::get)
               .collect(Collectors.toList());
 
       // Create summary string
-      String summary =
-          topSentences.stream()
-              .map(s -> content.getText(s).orElse(""))
-              .filter(s -> !s.isEmpty())
-              .map(
-                  s -> {
-                    String lastChar = s.substring(s.length() - 1);
-                    if (!END_OF_SENTENCE.contains(lastChar)) {
-                      return s + ".";
-                    } else {
-                      return s;
-                    }
-                  })
-              .collect(Collectors.joining(" "));
-
-      // Create annotation
-      content
-          .getAnnotations()
-          .create()
-          .withBounds(ContentBounds.getInstance())
-          .withType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
-          .withProperty(PropertyKeys.PROPERTY_KEY_VALUE, summary)
-          .save();
+      return createSummary(topSentences.stream().map(s -> content.getText(s).orElse("")));
     }
 
-    private static String getLemma(Text content, Annotation a) {
-      if (a.getProperties().has(PropertyKeys.PROPERTY_KEY_LEMMA, String.class)) {
-        return a.getProperties()
-            .get(PropertyKeys.PROPERTY_KEY_LEMMA, String.class)
-            .get()
-            .toLowerCase();
-      } else {
-        return content.getText(a).orElse("").toLowerCase();
+    /**
+     * Find the terms of the tokens between from and to, filling in their term ids, and return a
+     * table of the terms found. Term ids refer to the returned table.
+     */
+    private TermTable countTerms(TokenView tokens, int from, int to, int[] termIds) {
+      TermTable table = new TermTable();
+      for (int i = from; i < to; i++) {
+        String w = tokens.getLemma(i);
+        termIds[i] = isWord(w) && !stopwords.isStopword(w) ? table.add(w) : -1;
+      }
+
+      return table;
+    }
+
+    /**
+     * Score the sentences between from and to, by sweeping through the tokens alongside the
+     * sentences. As both are sorted, the first token that could be in a sentence is never before
+     * the first token that could be in the previous sentence.
+     */
+    private static void scoreSentences(
+        List<Annotation> sentences,
+        int from,
+        int to,
+        TokenView tokens,
+        int[] termIds,
+        double[] weights,
+        double[] sentenceScores) {
+      int first = -1;
+      for (int s = from; s < to; s++) {
+        SpanBounds sb = sentences.get(s).getBounds(SpanBounds.class).get();
+
+        if (first == -1) {
+          first = tokens.lowerBound(sb.getBegin());
+        } else {
+          while (first < tokens.size() && tokens.getBegin(first) < sb.getBegin()) first++;
+        }
+
+        double score = 0;
+        for (int i = first; i < tokens.size() && tokens.getBegin(i) < sb.getEnd(); i++) {
+          if (termIds[i] != -1 && tokens.getEnd(i) <= sb.getEnd()) {
+            score += weights[termIds[i]];
+          }
+        }
+
+        sentenceScores[s] = score;
       }
     }
+
+    /** The start of part p, when splitting n items into the given number of parts */
+    private static int start(int p, int parts, int n) {
+      return (int) ((long) n * p / parts);
+    }
+
+    /** Join the sentences into a summary, ensuring each ends with punctuation */
+    static String createSummary(Stream<String> sentences) {
+      return sentences
+          .filter(s -> !s.isEmpty())
+          .map(
+              s -> {
+                String lastChar = s.substring(s.length() - 1);
+                if (!END_OF_SENTENCE.contains(lastChar)) {
+                  return s + ".";
+                } else {
+                  return s;
+                }
+              })
+          .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Returns true if w starts with a letter and contains only letters, digits and hyphens, i.e.
+     * matches {@code [a-z][-a-z0-9]*}. This ignores punctuation, just numbers, etc.
+     */
+    static boolean isWord(String w) {
+      if (w.isEmpty()) return false;
+
+      char first = w.charAt(0);
+      if (first < 'a' || first > 'z') return false;
+
+      for (int i = 1; i < w.length(); i++) {
+        char c = w.charAt(i);
+        if ((c < 'a' || c > 'z') && (c < '0' || c > '9') && c != '-') return false;
+      }
+
+      return true;
+    }
   }
 
   public static class Settings implements io.annot8.api.settings.Settings {
     private int numSentences = 3;
+    private Scoring scoring = Scoring.FREQUENCY;
+    private boolean parallel = false;
+    private int cacheSize = 0;
+    private long cacheExpiry = 3600;
+    private boolean cacheNearDuplicates = false;
+    private double nearDuplicateSimilarity = 0.9;
 
     public Settings() {
       // Default settings
@@ -187,9 +406,78 @@ public class TokenFrequencySummarisation
       this.numSentences = numSentences;
     }
 
+    @Description(
+        value = "How tokens are weighted (TF_IDF requires a DocumentFrequencies resource)",
+        defaultValue = "FREQUENCY")
+    public Scoring getScoring() {
+      return scoring;
+    }
+
+    public void setScoring(Scoring scoring) {
+      this.scoring = scoring;
+    }
+
+    @Description(
+        value = "Split large documents between threads when counting tokens and scoring sentences",
+        defaultValue = "false")
+    public boolean isParallel() {
+      return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+      this.parallel = parallel;
+    }
+
+    @Description(
+        value = "The number of summaries to cache for repeated documents, or 0 for no cache",
+        defaultValue = "0")
+    public int getCacheSize() {
+      return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+      this.cacheSize = cacheSize;
+    }
+
+    @Description(value = "The number of seconds to cache each summary for", defaultValue = "3600")
+    public long getCacheExpiry() {
+      return cacheExpiry;
+    }
+
+    public void setCacheExpiry(long cacheExpiry) {
+      this.cacheExpiry = cacheExpiry;
+    }
+
+    @Description(
+        value = "Reuse the cached summary of a near duplicate of the document",
+        defaultValue = "false")
+    public boolean isCacheNearDuplicates() {
+      return cacheNearDuplicates;
+    }
+
+    public void setCacheNearDuplicates(boolean cacheNearDuplicates) {
+      this.cacheNearDuplicates = cacheNearDuplicates;
+    }
+
+    @Description(
+        value = "The similarity, between 0 and 1, at which documents are near duplicates",
+        defaultValue = "0.9")
+    public double getNearDuplicateSimilarity() {
+      return nearDuplicateSimilarity;
+    }
+
+    public void setNearDuplicateSimilarity(double nearDuplicateSimilarity) {
+      this.nearDuplicateSimilarity = nearDuplicateSimilarity;
+    }
+
     @Override
     public boolean validate() {
-      return numSentences > 0;
+      return numSentences > 0
+          && scoring != null
+          && cacheSize >= 0
+          && cacheExpiry > 0
+          && nearDuplicateSimilarity > 0.0
+          && nearDuplicateSimilarity <= 1.0;
     }
   }
 }
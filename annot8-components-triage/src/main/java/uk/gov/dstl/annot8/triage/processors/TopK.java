@@ -0,0 +1,87 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import java.util.Arrays;
+
+/**
+ * Selects the highest scoring items using a bounded min-heap, which takes O(n log k) time rather
+ * than the O(n log n) of sorting all the scores.
+ */
+final class TopK {
+
+  private TopK() {
+    // Utility class
+  }
+
+  /**
+   * Returns the indices of the k highest scores, in ascending order of index. Where scores are
+   * equal, the lower index is preferred, so the result is the same as taking the first k of a
+   * stable sort by descending score.
+   */
+  static int[] select(double[] scores, int k) {
+    if (k <= 0) return new int[0];
+
+    // The heap holds the best indices found so far, with the worst of them at the root
+    int[] heap = new int[Math.min(k, scores.length)];
+    int size = 0;
+
+    for (int i = 0; i < scores.length; i++) {
+      if (size < heap.length) {
+        heap[size] = i;
+        siftUp(scores, heap, size++);
+      } else if (better(scores, i, heap[0])) {
+        heap[0] = i;
+        siftDown(scores, heap, size);
+      }
+    }
+
+    Arrays.sort(heap);
+    return heap;
+  }
+
+  /** True if index a should be selected in preference to index b */
+  private static boolean better(double[] scores, int a, int b) {
+    return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+  }
+
+  private static void siftUp(double[] scores, int[] heap, int i) {
+    int x = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!better(scores, heap[parent], x)) break;
+
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = x;
+  }
+
+  private static void siftDown(double[] scores, int[] heap, int size) {
+    int x = heap[0];
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) break;
+      if (child + 1 < size && better(scores, heap[child], heap[child + 1])) child++;
+      if (!better(scores, x, heap[child])) break;
+
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = x;
+  }
+}
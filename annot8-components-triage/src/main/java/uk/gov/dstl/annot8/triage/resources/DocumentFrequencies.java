@@ -0,0 +1,39 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.resources;
+
+import io.annot8.api.components.Resource;
+
+/**
+ * Resource giving the number of documents in a corpus that contain each term, for weighting terms
+ * by how informative they are.
+ */
+public interface DocumentFrequencies extends Resource {
+
+  /** The number of documents in the corpus */
+  int getDocumentCount();
+
+  /** The number of documents in the corpus that contain the term, or 0 if it isn't known */
+  int getDocumentFrequency(String term);
+
+  /**
+   * The smoothed inverse document frequency of the term, {@code ln((1 + N) / (1 + df)) + 1}. This
+   * is always positive, and is highest for terms that don't appear in the corpus.
+   */
+  default double getInverseDocumentFrequency(String term) {
+    return Math.log((1.0 + getDocumentCount()) / (1.0 + getDocumentFrequency(term))) + 1.0;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.resources;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Document frequencies read from a memory-mapped file, so that the table isn't loaded onto the
+ * heap. Opening the file is fast regardless of its size, and any number of processors (or
+ * processes) using the same file share a single copy of it in the operating system's page cache.
+ *
+ * <p>The file is written by {@link Builder}, and holds the terms sorted by their UTF-8 encoding so
+ * that they can be binary searched. All values are big-endian ints:
+ *
+ * <pre>
+ *   magic, document count, term count (n)
+ *   n + 1 offsets of the start of each term, relative to the start of the terms
+ *   n document frequencies
+ *   the UTF-8 encoded terms
+ * </pre>
+ *
+ * <p>Lookups are exact, so terms should be normalised in the same way as the terms that will be
+ * looked up, e.g. lower cased lemmas for {@code TokenFrequencySummarisation}.
+ */
+public class MappedDocumentFrequencies implements DocumentFrequencies {
+  static final int MAGIC = 0x41384446; // A8DF
+  private static final int HEADER_SIZE = 12;
+
+  private final ByteBuffer buffer;
+  private final int documentCount;
+  private final int termCount;
+  private final int countsStart;
+  private final int termsStart;
+
+  public MappedDocumentFrequencies(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Document frequency file is too large: " + path);
+      }
+
+      // The mapping remains valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a document frequency file: " + path);
+    }
+
+    documentCount = buffer.getInt(4);
+    termCount = buffer.getInt(8);
+
+    // Checked as longs, so that a corrupt term count can't overflow past the checks
+    long counts = HEADER_SIZE + 4L * (termCount + 1L);
+    long terms = counts + 4L * termCount;
+
+    if (termCount < 0
+        || terms > buffer.capacity()
+        || terms + buffer.getInt(HEADER_SIZE + 4 * termCount) != buffer.capacity()) {
+      throw new IOException("Document frequency file is corrupt: " + path);
+    }
+
+    countsStart = (int) counts;
+    termsStart = (int) terms;
+  }
+
+  @Override
+  public int getDocumentCount() {
+    return documentCount;
+  }
+
+  /** The number of distinct terms in the file */
+  public int getTermCount() {
+    return termCount;
+  }
+
+  @Override
+  public int getDocumentFrequency(String term) {
+    byte[] key = term.getBytes(StandardCharsets.UTF_8);
+
+    int low = 0;
+    int high = termCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int c = compareTerm(mid, key);
+
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return buffer.getInt(countsStart + 4 * mid);
+      }
+    }
+
+    return 0;
+  }
+
+  /** Compare term i in the file with the key, as unsigned bytes */
+  private int compareTerm(int i, byte[] key) {
+    int start = termsStart + buffer.getInt(HEADER_SIZE + 4 * i);
+    int length = termsStart + buffer.getInt(HEADER_SIZE + 4 * (i + 1)) - start;
+
+    int n = Math.min(length, key.length);
+    for (int j = 0; j < n; j++) {
+      int c = Integer.compare(buffer.get(start + j) & 0xff, key[j] & 0xff);
+      if (c != 0) return c;
+    }
+
+    return Integer.compare(length, key.length);
+  }
+
+  /** Counts document frequencies over a corpus, and writes them to a file */
+  public static class Builder {
+    private final Map<String, Integer> frequencies = new HashMap<>();
+    private int documentCount = 0;
+
+    /** Add a document, given the terms it contains. Repeated terms are only counted once. */
+    public Builder withDocument(Collection<String> terms) {
+      documentCount++;
+      new HashSet<>(terms).forEach(t -> frequencies.merge(t, 1, Integer::sum));
+      return this;
+    }
+
+    /** Add the document frequency of a term that has already been counted elsewhere */
+    public Builder withDocumentFrequency(String term, int documentFrequency) {
+      frequencies.merge(term, documentFrequency, Integer::sum);
+      return this;
+    }
+
+    /** Set the number of documents, if the frequencies have been counted elsewhere */
+    public Builder withDocumentCount(int documentCount) {
+      this.documentCount = documentCount;
+      return this;
+    }
+
+    public void write(Path path) throws IOException {
+      List<byte[]> terms = new ArrayList<>(frequencies.size());
+      Map<byte[], Integer> counts = new IdentityHashMap<>();
+      frequencies.forEach(
+          (term, count) -> {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            terms.add(bytes);
+            counts.put(bytes, count);
+          });
+      terms.sort(Arrays::compareUnsigned);
+
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(documentCount);
+        out.writeInt(terms.size());
+
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] term : terms) {
+          offset += term.length;
+          out.writeInt(offset);
+        }
+
+        for (byte[] term : terms) {
+          out.writeInt(counts.get(term));
+        }
+
+        for (byte[] term : terms) out.write(term);
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.annot8.components.stopwords.resources.CollectionStopwords;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import io.annot8.testing.testimpl.TestItem;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class StreamingTokenFrequencySummarisationTest {
+
+  @Test
+  public void test() {
+    TestItem item = new TestItem();
+    TestStringContent first =
+        item.createContent(TestStringContent.class)
+            .withData("Cats sat on mats. Dogs sat on logs.")
+            .withProperty(StreamingTokenFrequencySummarisation.Processor.PROPERTY_KEY_CHUNK, 0)
+            .save();
+    TestStringContent second =
+        item.createContent(TestStringContent.class)
+            .withData("Cats chased dogs. Cats sang.")
+            .withProperty(StreamingTokenFrequencySummarisation.Processor.PROPERTY_KEY_CHUNK, 1)
+            .save();
+    StreamingSummariserTest.annotate(first);
+    StreamingSummariserTest.annotate(second);
+
+    StreamingTokenFrequencySummarisation.Processor p =
+        new StreamingTokenFrequencySummarisation.Processor(
+            2, 10, new CollectionStopwords("en", Set.of("on")));
+    p.process(item);
+
+    assertEquals(
+        0, first.getAnnotations().getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY).count());
+    assertEquals(
+        "Cats sat on mats. Cats chased dogs.",
+        second
+            .getAnnotations()
+            .getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+            .findFirst()
+            .flatMap(a -> a.getProperties().get(PropertyKeys.PROPERTY_KEY_VALUE, String.class))
+            .orElse(""));
+
+    p.close();
+  }
+
+  @Test
+  public void testOutOfOrder() {
+    TestItem item = new TestItem();
+    TestStringContent second =
+        item.createContent(TestStringContent.class)
+            .withData("Cats chased dogs. Cats sang.")
+            .withProperty(StreamingTokenFrequencySummarisation.Processor.PROPERTY_KEY_CHUNK, 1)
+            .save();
+    TestStringContent other =
+        item.createContent(TestStringContent.class).withData("Cats, cats, cats.").save();
+    TestStringContent first =
+        item.createContent(TestStringContent.class)
+            .withData("Cats sat on mats. Dogs sat on logs.")
+            .withProperty(StreamingTokenFrequencySummarisation.Processor.PROPERTY_KEY_CHUNK, 0)
+            .save();
+    StreamingSummariserTest.annotate(second);
+    StreamingSummariserTest.annotate(other);
+    StreamingSummariserTest.annotate(first);
+
+    StreamingTokenFrequencySummarisation.Processor p =
+        new StreamingTokenFrequencySummarisation.Processor(
+            2, 10, new CollectionStopwords("en", Set.of("on")));
+    p.process(item);
+
+    // Read in order of chunk index, ignoring the content that isn't a chunk
+    assertEquals(
+        0, first.getAnnotations().getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY).count());
+    assertEquals(
+        0, other.getAnnotations().getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY).count());
+    assertEquals(
+        "Cats sat on mats. Cats chased dogs.",
+        second
+            .getAnnotations()
+            .getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+            .findFirst()
+            .flatMap(a -> a.getProperties().get(PropertyKeys.PROPERTY_KEY_VALUE, String.class))
+            .orElse(""));
+
+    p.close();
+  }
+
+  @Test
+  public void testSettings() {
+    StreamingTokenFrequencySummarisation.Settings settings =
+        new StreamingTokenFrequencySummarisation.Settings();
+    assertTrue(settings.validate());
+
+    settings.setNumCandidates(2);
+    assertFalse(settings.validate());
+
+    settings.setNumSentences(2);
+    assertTrue(settings.validate());
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+public class SummaryCacheTest {
+
+  private static final String DOCUMENT =
+      "The quick brown fox jumps over the lazy dog. The dog sleeps in the sun all afternoon. "
+          + "Later the fox returns to the forest, where it hunts for mice and rabbits until dark.";
+
+  @Test
+  public void testExact() {
+    SummaryCache cache = new SummaryCache(10, Duration.ofHours(1));
+
+    assertEquals("First", cache.computeIfAbsent(DOCUMENT, () -> "First"));
+    assertEquals("First", cache.computeIfAbsent(DOCUMENT, () -> "Second"));
+    assertEquals("Other", cache.computeIfAbsent(DOCUMENT + " The end.", () -> "Other"));
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testKeyCollision() {
+    // Every text has the same key, so only the length and second hash tell them apart
+    SummaryCache cache =
+        new SummaryCache(10, Duration.ofHours(1), false, 1.0, Clock.systemUTC(), text -> 0L);
+
+    assertEquals("A", cache.computeIfAbsent("a", () -> "A"));
+    assertEquals("A", cache.computeIfAbsent("a", () -> "X"));
+    assertEquals("B", cache.computeIfAbsent("b", () -> "B"));
+    assertEquals("Longer", cache.computeIfAbsent("longer", () -> "Longer"));
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(3, cache.getMissCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsed() {
+    SummaryCache cache = new SummaryCache(2, Duration.ofHours(1));
+
+    cache.computeIfAbsent("a", () -> "A");
+    cache.computeIfAbsent("b", () -> "B");
+    cache.computeIfAbsent("a", () -> "X");
+
+    // b is now the least recently used, so is evicted
+    cache.computeIfAbsent("c", () -> "C");
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+
+    assertEquals("A", cache.computeIfAbsent("a", () -> "X"));
+    assertEquals("B2", cache.computeIfAbsent("b", () -> "B2"));
+  }
+
+  @Test
+  public void testExpiry() {
+    MutableClock clock = new MutableClock();
+    SummaryCache cache = new SummaryCache(10, Duration.ofMinutes(10), true, 0.8, clock);
+
+    cache.computeIfAbsent(DOCUMENT, () -> "First");
+
+    clock.advance(Duration.ofMinutes(5));
+    assertEquals("First", cache.computeIfAbsent(DOCUMENT, () -> "Second"));
+    assertEquals("First", cache.computeIfAbsent(DOCUMENT + " Again.", () -> "Second"));
+
+    clock.advance(Duration.ofMinutes(6));
+    assertEquals("Third", cache.computeIfAbsent(DOCUMENT + " Again.", () -> "Third"));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals("Third", cache.computeIfAbsent(DOCUMENT + " Again.", () -> "Fourth"));
+  }
+
+  @Test
+  public void testNearDuplicates() {
+    SummaryCache cache = new SummaryCache(10, Duration.ofHours(1), true, 0.8);
+
+    cache.computeIfAbsent(DOCUMENT, () -> "Summary");
+
+    // Differing only in case and punctuation, or with a few words added
+    assertEquals("Summary", cache.computeIfAbsent(DOCUMENT.toUpperCase(), () -> "Other"));
+    assertEquals(
+        "Summary", cache.computeIfAbsent("Fwd: " + DOCUMENT + " Thanks.", () -> "Other"));
+    assertEquals(2, cache.getNearDuplicateHitCount());
+
+    assertEquals(
+        "Different",
+        cache.computeIfAbsent(
+            "Markets rose sharply on Tuesday after the central bank held interest rates.",
+            () -> "Different"));
+
+    // Near duplicates aren't matched unless enabled
+    SummaryCache exact = new SummaryCache(10, Duration.ofHours(1));
+    exact.computeIfAbsent(DOCUMENT, () -> "Summary");
+    assertEquals("Other", exact.computeIfAbsent(DOCUMENT.toUpperCase(), () -> "Other"));
+  }
+
+  @Test
+  public void testHash() {
+    assertEquals(SummaryCache.hash(DOCUMENT), SummaryCache.hash(new String(DOCUMENT)));
+    assertNotEquals(SummaryCache.hash(DOCUMENT), SummaryCache.hash(DOCUMENT + " "));
+    assertNotEquals(SummaryCache.hash("ab"), SummaryCache.hash("ba"));
+    assertNotEquals(SummaryCache.hash(""), SummaryCache.hash("\u0000"));
+
+    assertEquals(SummaryCache.checkHash(DOCUMENT), SummaryCache.checkHash(new String(DOCUMENT)));
+    assertNotEquals(SummaryCache.checkHash("ab"), SummaryCache.checkHash("ba"));
+    assertNotEquals(SummaryCache.checkHash("\u0100"), SummaryCache.checkHash("\u0001"));
+  }
+
+  @Test
+  public void testSignature() {
+    long[] signature = SummaryCache.signature(DOCUMENT);
+    assertEquals(SummaryCache.NUM_HASHES, signature.length);
+
+    assertEquals(1.0, SummaryCache.similarity(signature, SummaryCache.signature(DOCUMENT)));
+    assertTrue(
+        SummaryCache.similarity(signature, SummaryCache.signature(DOCUMENT + " The end.")) > 0.8);
+    assertTrue(
+        SummaryCache.similarity(signature, SummaryCache.signature("An entirely unrelated text."))
+            < 0.2);
+
+    // Short documents still have a signature
+    assertEquals(
+        1.0, SummaryCache.similarity(SummaryCache.signature("Hi"), SummaryCache.signature("hi!")));
+  }
+
+  private static class MutableClock extends Clock {
+    private Instant instant = Instant.EPOCH;
+
+    void advance(Duration duration) {
+      instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class TermTableTest {
+
+  @Test
+  public void testAdd() {
+    TermTable table = new TermTable();
+
+    assertEquals(0, table.add("cat"));
+    assertEquals(1, table.add("dog"));
+    assertEquals(0, table.add("cat"));
+    assertEquals(0, table.add(new String("cat")));
+
+    assertEquals(2, table.size());
+    assertEquals("cat", table.term(0));
+    assertEquals("dog", table.term(1));
+
+    assertEquals(3, table.count("cat"));
+    assertEquals(3, table.count(0));
+    assertEquals(1, table.count("dog"));
+    assertEquals(0, table.count("mouse"));
+
+    assertEquals(1, table.id("dog"));
+    assertEquals(-1, table.id("mouse"));
+  }
+
+  @Test
+  public void testMatchesHashMap() {
+    TermTable table = new TermTable();
+    Map<String, Integer> expected = new HashMap<>();
+
+    // Enough terms to resize the table several times
+    Random r = new Random(1234L);
+    for (int i = 0; i < 20000; i++) {
+      String term = "term" + r.nextInt(5000);
+      table.add(term);
+      expected.merge(term, 1, Integer::sum);
+    }
+
+    assertEquals(expected.size(), table.size());
+    for (Map.Entry<String, Integer> e : expected.entrySet()) {
+      assertEquals((int) e.getValue(), table.count(e.getKey()));
+    }
+    for (int id = 0; id < table.size(); id++) {
+      assertEquals(id, table.id(table.term(id)));
+    }
+  }
+
+  @Test
+  public void testAddCount() {
+    TermTable table = new TermTable();
+    assertEquals(0, table.add("cat", 5));
+    assertEquals(1, table.add("dog"));
+    assertEquals(0, table.add("cat", 2));
+
+    assertEquals(7, table.count("cat"));
+    assertEquals(1, table.count("dog"));
+  }
+
+  @Test
+  public void testCollidingHashes() {
+    // "Aa" and "BB" have the same hash code
+    TermTable table = new TermTable();
+    table.add("Aa");
+    table.add("BB");
+    table.add("BB");
+
+    assertEquals(2, table.size());
+    assertEquals(1, table.count("Aa"));
+    assertEquals(2, table.count("BB"));
+  }
+}
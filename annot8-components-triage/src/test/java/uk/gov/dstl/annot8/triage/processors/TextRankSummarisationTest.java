@@ -0,0 +1,223 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.annot8.components.stopwords.resources.CollectionStopwords;
+import io.annot8.components.stopwords.resources.Stopwords;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class TextRankSummarisationTest {
+
+  private static final String TEXT =
+      "Cats chase dogs. Dogs chase birds. Birds eat seeds. Fish swim.";
+
+  @Test
+  public void test() {
+    TestStringContent content = StreamingSummariserTest.createContent(TEXT);
+
+    TextRankSummarisation.Processor p =
+        new TextRankSummarisation.Processor(
+            1, new CollectionStopwords("en", Collections.emptySet()));
+    p.process(content);
+
+    // The second sentence shares terms with both its neighbours
+    assertEquals("Dogs chase birds.", getSummary(content));
+
+    p.close();
+  }
+
+  @Test
+  public void testOrder() {
+    TestStringContent content = StreamingSummariserTest.createContent(TEXT);
+
+    TextRankSummarisation.Processor p =
+        new TextRankSummarisation.Processor(
+            2, new CollectionStopwords("en", Collections.emptySet()));
+    p.process(content);
+
+    assertEquals("Cats chase dogs. Dogs chase birds.", getSummary(content));
+
+    // Working arrays are reused for the next document
+    TestStringContent second = StreamingSummariserTest.createContent("Owls hoot. " + TEXT);
+    p.process(second);
+
+    assertEquals("Cats chase dogs. Dogs chase birds.", getSummary(second));
+
+    p.close();
+  }
+
+  @Test
+  public void testMaxIterations() {
+    TestStringContent content = StreamingSummariserTest.createContent(TEXT);
+
+    // After a single iteration, ranks are the weighted degree of each sentence
+    TextRankSummarisation.Processor p =
+        new TextRankSummarisation.Processor(
+            1, new CollectionStopwords("en", Collections.emptySet()), 0.85, 1, 0.0, 1.0);
+    p.process(content);
+
+    assertEquals("Dogs chase birds.", getSummary(content));
+
+    p.close();
+  }
+
+  @Test
+  public void testMaxTermFraction() {
+    TestStringContent content =
+        StreamingSummariserTest.createContent(
+            "Cats chase dogs. Dogs chase birds. Dogs eat seeds. Birds eat seeds. Cats swim.");
+
+    TextRankSummarisation.Processor p =
+        new TextRankSummarisation.Processor(
+            1, new CollectionStopwords("en", Collections.emptySet()), 0.85, 100, 1e-6, 1.0);
+    p.process(content);
+
+    assertEquals("Cats chase dogs.", getSummary(content));
+
+    // Ignoring dogs, which is in more than half the sentences, leaves birds and seeds central
+    TestStringContent second =
+        StreamingSummariserTest.createContent(
+            "Cats chase dogs. Dogs chase birds. Dogs eat seeds. Birds eat seeds. Cats swim.");
+
+    TextRankSummarisation.Processor limited =
+        new TextRankSummarisation.Processor(
+            1, new CollectionStopwords("en", Collections.emptySet()), 0.85, 100, 1e-6, 0.5);
+    limited.process(second);
+
+    assertEquals("Birds eat seeds.", getSummary(second));
+
+    p.close();
+    limited.close();
+  }
+
+  @Test
+  public void testNoSentences() {
+    TestStringContent content = StreamingSummariserTest.createContent("");
+
+    TextRankSummarisation.Processor p =
+        new TextRankSummarisation.Processor(
+            3, new CollectionStopwords("en", Collections.emptySet()));
+    p.process(content);
+
+    assertEquals("", getSummary(content));
+
+    p.close();
+  }
+
+  @Test
+  public void testComparedToTokenFrequency() {
+    String document =
+        "Heavy rain caused flooding in the town on Monday. "
+            + "The river burst its banks after three days of rain. "
+            + "Rain, rain, rain, said one resident. "
+            + "Hundreds of homes in the town were flooded by the river. "
+            + "Emergency services rescued residents from flooded homes. "
+            + "The council has opened a shelter for residents. "
+            + "Local shops reported good sales of umbrellas. "
+            + "The flooding is expected to ease by Friday.";
+    String reference =
+        "Heavy rain caused flooding in the town on Monday. "
+            + "Hundreds of homes in the town were flooded by the river.";
+    Stopwords stopwords =
+        new CollectionStopwords(
+            "en",
+            Set.of(
+                "a", "after", "by", "for", "from", "has", "in", "is", "its", "of", "on", "one",
+                "said", "the", "to", "were"));
+
+    TestStringContent tfContent = StreamingSummariserTest.createContent(document);
+    TokenFrequencySummarisation.Processor tf =
+        new TokenFrequencySummarisation.Processor(2, stopwords);
+    tf.process(tfContent);
+
+    TestStringContent trContent = StreamingSummariserTest.createContent(document);
+    TextRankSummarisation.Processor tr = new TextRankSummarisation.Processor(2, stopwords);
+    tr.process(trContent);
+
+    // Token frequency favours the sentence repeating the most frequent word, whereas TextRank
+    // favours the sentences sharing terms with the rest of the document
+    double tfRecall = recall(getSummary(tfContent), reference, stopwords);
+    double trRecall = recall(getSummary(trContent), reference, stopwords);
+    assertEquals(1.0, trRecall, 1e-9);
+    assertTrue(trRecall > tfRecall);
+
+    tf.close();
+    tr.close();
+  }
+
+  @Test
+  public void testSimilarity() {
+    assertEquals(1.0, TextRankSummarisation.Processor.similarity(1, 1, 1), 1e-9);
+    assertEquals(
+        2.0 / (2 * Math.log(3)), TextRankSummarisation.Processor.similarity(2, 3, 3), 1e-9);
+  }
+
+  @Test
+  public void testSettings() {
+    TextRankSummarisation.Settings settings = new TextRankSummarisation.Settings();
+    assertTrue(settings.validate());
+
+    settings.setDampingFactor(1.5);
+    assertFalse(settings.validate());
+
+    settings.setDampingFactor(0.5);
+    settings.setMaxIterations(0);
+    assertFalse(settings.validate());
+
+    settings.setMaxIterations(10);
+    settings.setMaxTermFraction(0.0);
+    assertFalse(settings.validate());
+
+    settings.setMaxTermFraction(0.1);
+    settings.setNumSentences(0);
+    assertFalse(settings.validate());
+  }
+
+  /** The fraction of the distinct terms in the reference that are in the summary (ROUGE-1) */
+  private static double recall(String summary, String reference, Stopwords stopwords) {
+    Set<String> summaryTerms = terms(summary, stopwords);
+    Set<String> referenceTerms = terms(reference, stopwords);
+    return (double) referenceTerms.stream().filter(summaryTerms::contains).count()
+        / referenceTerms.size();
+  }
+
+  private static Set<String> terms(String text, Stopwords stopwords) {
+    return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+"))
+        .filter(w -> !w.isEmpty() && !stopwords.isStopword(w))
+        .collect(Collectors.toSet());
+  }
+
+  private static String getSummary(TestStringContent content) {
+    return content
+        .getAnnotations()
+        .getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+        .findFirst()
+        .flatMap(a -> a.getProperties().get(PropertyKeys.PROPERTY_KEY_VALUE, String.class))
+        .orElse("");
+  }
+}
@@ -17,6 +17,7 @@ package uk.gov.dstl.annot8.triage.processors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.annot8.common.data.bounds.SpanBounds;
 import io.annot8.components.stopwords.resources.CollectionStopwords;
@@ -24,12 +25,16 @@ import io.annot8.conventions.AnnotationTypes;
 import io.annot8.conventions.PropertyKeys;
 import io.annot8.testing.testimpl.TestItem;
 import io.annot8.testing.testimpl.content.TestStringContent;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
+import uk.gov.dstl.annot8.triage.resources.DocumentFrequencies;
 
 public class TokenFrequencySummarisationTest {
 
@@ -91,4 +96,201 @@ public class TokenFrequencySummarisationTest {
 
     p.close();
   }
+
+  @Test
+  public void testScoring() {
+    TestStringContent content = createContent("Apple apple banana. Cherry. Apple banana. Dog.");
+
+    TokenFrequencySummarisation.Processor p =
+        new TokenFrequencySummarisation.Processor(2, new CollectionStopwords("en", Set.of()));
+    p.process(content);
+
+    assertEquals("Apple apple banana. Apple banana.", getSummary(content));
+
+    p.close();
+  }
+
+  @Test
+  public void testTfIdf() {
+    TestStringContent content = createContent("Apple apple banana. Cherry. Apple banana. Dog.");
+
+    // Apple and banana are in every document, so are weighted below cherry and dog
+    DocumentFrequencies df =
+        new DocumentFrequencies() {
+          @Override
+          public int getDocumentCount() {
+            return 100;
+          }
+
+          @Override
+          public int getDocumentFrequency(String term) {
+            return term.equals("apple") || term.equals("banana") ? 100 : 0;
+          }
+        };
+
+    TokenFrequencySummarisation.Processor p =
+        new TokenFrequencySummarisation.Processor(
+            2,
+            new CollectionStopwords("en", Set.of()),
+            TokenFrequencySummarisation.Scoring.TF_IDF,
+            df);
+    p.process(content);
+
+    assertEquals("Apple apple banana. Cherry.", getSummary(content));
+
+    p.close();
+  }
+
+  @Test
+  public void testSettings() {
+    TokenFrequencySummarisation.Settings settings = new TokenFrequencySummarisation.Settings(3);
+    assertEquals(TokenFrequencySummarisation.Scoring.FREQUENCY, settings.getScoring());
+
+    settings.setScoring(TokenFrequencySummarisation.Scoring.TF_IDF);
+    assertTrue(settings.validate());
+
+    settings.setScoring(null);
+    assertFalse(settings.validate());
+
+    settings.setScoring(TokenFrequencySummarisation.Scoring.FREQUENCY);
+    settings.setCacheSize(-1);
+    assertFalse(settings.validate());
+
+    settings.setCacheSize(100);
+    settings.setNearDuplicateSimilarity(0.0);
+    assertFalse(settings.validate());
+  }
+
+  @Test
+  public void testCache() {
+    String text = "Apple apple banana. Cherry. Apple banana. Dog.";
+    SummaryCache cache = new SummaryCache(10, Duration.ofHours(1));
+
+    TokenFrequencySummarisation.Processor p =
+        new TokenFrequencySummarisation.Processor(
+            2,
+            new CollectionStopwords("en", Set.of()),
+            TokenFrequencySummarisation.Scoring.FREQUENCY,
+            null,
+            false,
+            cache);
+
+    TestStringContent content = createContent(text);
+    p.process(content);
+    assertEquals("Apple apple banana. Apple banana.", getSummary(content));
+
+    // Without annotations the summary would be empty, so it must have come from the cache
+    TestStringContent repeat =
+        new TestItem().createContent(TestStringContent.class).withData(text).save();
+    p.process(repeat);
+    assertEquals("Apple apple banana. Apple banana.", getSummary(repeat));
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    p.close();
+  }
+
+  @Test
+  public void testParallel() {
+    // Large enough to be split between threads, with many equal scores to test tie-breaking
+    Random r = new Random(1234L);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      int length = 3 + r.nextInt(8);
+      for (int j = 0; j < length; j++) {
+        if (j > 0) sb.append(' ');
+        sb.append(j == 0 ? "Word" : "word").append(r.nextInt(200));
+      }
+      sb.append(". ");
+    }
+    String text = sb.toString().trim();
+
+    DocumentFrequencies df =
+        new DocumentFrequencies() {
+          @Override
+          public int getDocumentCount() {
+            return 1000;
+          }
+
+          @Override
+          public int getDocumentFrequency(String term) {
+            return term.hashCode() & 1023;
+          }
+        };
+
+    for (TokenFrequencySummarisation.Scoring scoring :
+        TokenFrequencySummarisation.Scoring.values()) {
+      TestStringContent sequential = createContent(text);
+      new TokenFrequencySummarisation.Processor(
+              10, new CollectionStopwords("en", Set.of()), scoring, df, false)
+          .process(sequential);
+
+      TestStringContent parallel = createContent(text);
+      new TokenFrequencySummarisation.Processor(
+              10, new CollectionStopwords("en", Set.of()), scoring, df, true)
+          .process(parallel);
+
+      assertFalse(getSummary(sequential).isEmpty());
+      assertEquals(getSummary(sequential), getSummary(parallel));
+    }
+  }
+
+  @Test
+  public void testIsWord() {
+    assertTrue(TokenFrequencySummarisation.Processor.isWord("car"));
+    assertTrue(TokenFrequencySummarisation.Processor.isWord("g15"));
+    assertTrue(TokenFrequencySummarisation.Processor.isWord("rear-mounted"));
+    assertTrue(TokenFrequencySummarisation.Processor.isWord("x"));
+
+    assertFalse(TokenFrequencySummarisation.Processor.isWord(""));
+    assertFalse(TokenFrequencySummarisation.Processor.isWord("1967"));
+    assertFalse(TokenFrequencySummarisation.Processor.isWord("."));
+    assertFalse(TokenFrequencySummarisation.Processor.isWord("-car"));
+    assertFalse(TokenFrequencySummarisation.Processor.isWord("Car"));
+    assertFalse(TokenFrequencySummarisation.Processor.isWord("steering/suspension"));
+    assertFalse(TokenFrequencySummarisation.Processor.isWord("caf\u00E9"));
+  }
+
+  private static TestStringContent createContent(String text) {
+    TestItem testItem = new TestItem();
+    TestStringContent content =
+        testItem.createContent(TestStringContent.class).withData(text).save();
+
+    Matcher mSent = Pattern.compile("(.*?\\.)\\h*").matcher(text);
+    while (mSent.find()) {
+      content
+          .getAnnotations()
+          .create()
+          .withType(AnnotationTypes.ANNOTATION_TYPE_SENTENCE)
+          .withBounds(new SpanBounds(mSent.start(1), mSent.end(1)))
+          .save();
+    }
+
+    // Add the tokens in reverse order, to check they are sorted before being assigned to sentences
+    List<SpanBounds> words = new ArrayList<>();
+    Matcher mWord = Pattern.compile("[a-z0-9]+", Pattern.CASE_INSENSITIVE).matcher(text);
+    while (mWord.find()) {
+      words.add(0, new SpanBounds(mWord.start(), mWord.end()));
+    }
+    for (SpanBounds sb : words) {
+      content
+          .getAnnotations()
+          .create()
+          .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+          .withBounds(sb)
+          .save();
+    }
+
+    return content;
+  }
+
+  private static String getSummary(TestStringContent content) {
+    return content
+        .getAnnotations()
+        .getByType(AnnotationTypes.ANNOTATION_TYPE_SUMMARY)
+        .findFirst()
+        .flatMap(a -> a.getProperties().get(PropertyKeys.PROPERTY_KEY_VALUE, String.class))
+        .orElse("");
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.processors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class TopKTest {
+
+  @Test
+  public void testSelect() {
+    double[] scores = {5, 1, 9, 5, 7, 9, 0};
+
+    assertArrayEquals(new int[] {2, 5}, TopK.select(scores, 2));
+    assertArrayEquals(new int[] {2, 4, 5}, TopK.select(scores, 3));
+
+    // Ties are broken by position
+    assertArrayEquals(new int[] {0, 2, 4, 5}, TopK.select(scores, 4));
+
+    assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6}, TopK.select(scores, 10));
+    assertArrayEquals(new int[] {}, TopK.select(scores, 0));
+    assertArrayEquals(new int[] {}, TopK.select(new double[] {}, 3));
+  }
+
+  @Test
+  public void testMatchesSort() {
+    Random r = new Random(1234L);
+
+    for (int run = 0; run < 100; run++) {
+      double[] scores = r.ints(1 + r.nextInt(200), 0, 20).asDoubleStream().toArray();
+      int k = 1 + r.nextInt(15);
+
+      int[] expected =
+          IntStream.range(0, scores.length)
+              .boxed()
+              .sorted((s1, s2) -> Double.compare(scores[s2], scores[s1]))
+              .limit(k)
+              .mapToInt(Integer::intValue)
+              .sorted()
+              .toArray();
+
+      assertArrayEquals(expected, TopK.select(scores, k));
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.triage.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class MappedDocumentFrequenciesTest {
+
+  @Test
+  public void testReadWrite() throws IOException {
+    Path path = Files.createTempFile("df", ".bin");
+    try {
+      new MappedDocumentFrequencies.Builder()
+          .withDocument(List.of("apple", "banana", "apple"))
+          .withDocument(List.of("banana", "cherry"))
+          .withDocument(List.of("banana", "caf\u00E9", "z"))
+          .write(path);
+
+      MappedDocumentFrequencies df = new MappedDocumentFrequencies(path);
+      assertEquals(3, df.getDocumentCount());
+      assertEquals(5, df.getTermCount());
+
+      assertEquals(1, df.getDocumentFrequency("apple"));
+      assertEquals(3, df.getDocumentFrequency("banana"));
+      assertEquals(1, df.getDocumentFrequency("cherry"));
+      assertEquals(1, df.getDocumentFrequency("caf\u00E9"));
+      assertEquals(1, df.getDocumentFrequency("z"));
+
+      assertEquals(0, df.getDocumentFrequency("cafe"));
+      assertEquals(0, df.getDocumentFrequency("a"));
+      assertEquals(0, df.getDocumentFrequency(""));
+      assertEquals(0, df.getDocumentFrequency("zz"));
+
+      assertEquals(1.0, df.getInverseDocumentFrequency("banana"), 1e-9);
+      assertEquals(Math.log(4.0 / 2.0) + 1.0, df.getInverseDocumentFrequency("apple"), 1e-9);
+      assertTrue(df.getInverseDocumentFrequency("unknown") > df.getInverseDocumentFrequency("z"));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void testPrecounted() throws IOException {
+    Path path = Files.createTempFile("df", ".bin");
+    try {
+      new MappedDocumentFrequencies.Builder()
+          .withDocumentCount(1000)
+          .withDocumentFrequency("the", 990)
+          .withDocumentFrequency("tank", 12)
+          .write(path);
+
+      MappedDocumentFrequencies df = new MappedDocumentFrequencies(path);
+      assertEquals(1000, df.getDocumentCount());
+      assertEquals(990, df.getDocumentFrequency("the"));
+      assertEquals(12, df.getDocumentFrequency("tank"));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    Path path = Files.createTempFile("df", ".bin");
+    try {
+      new MappedDocumentFrequencies.Builder().write(path);
+
+      MappedDocumentFrequencies df = new MappedDocumentFrequencies(path);
+      assertEquals(0, df.getDocumentCount());
+      assertEquals(0, df.getDocumentFrequency("apple"));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void testInvalidFile() throws IOException {
+    Path path = Files.createTempFile("df", ".bin");
+    try {
+      Files.writeString(path, "Not a document frequency file");
+      assertThrows(IOException.class, () -> new MappedDocumentFrequencies(path));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void testCorruptTermCount() throws IOException {
+    Path path = Files.createTempFile("df", ".bin");
+    try {
+      new MappedDocumentFrequencies.Builder().withDocument(List.of("apple", "banana")).write(path);
+      byte[] bytes = Files.readAllBytes(path);
+
+      // Term counts that would overflow the offsets if they were calculated as ints
+      for (int termCount : new int[] {0x20000000, 0x30000000, Integer.MAX_VALUE}) {
+        ByteBuffer.wrap(bytes).putInt(8, termCount);
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> new MappedDocumentFrequencies(path));
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.capabilities.AnnotationCapability;
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.ContentCapability;
+import io.annot8.api.capabilities.GroupCapability;
+import io.annot8.api.components.ProcessorDescriptor;
+import io.annot8.api.components.SourceDescriptor;
+import io.annot8.api.pipelines.PipelineOrderer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * {@link DependencyOrderer} that remembers the orders (and stage plans) it has previously
+ * calculated, so that rebuilding a pipeline from the same processors doesn't require the
+ * dependency graph to be rebuilt.
+ *
+ * <p>Results are cached against a fingerprint of the capabilities of the processors, so a
+ * different set of descriptors with the same capabilities (for instance, when a pipeline is
+ * reloaded) will also be a cache hit. The fingerprint doesn't depend on the order in which the
+ * processors are supplied, so where the dependencies allow a choice of order, a cache hit returns
+ * the choice that was made when the result was first calculated. Processors with identical
+ * capabilities are interchangeable, and are returned in the order they were supplied.
+ *
+ * <p>The settings are read on each call, as they are by the {@link DependencyOrderer}. The cost of
+ * each processor is part of its fingerprint, and the cycle breaking, bounds matching and required
+ * capabilities are part of the key, so changing the settings won't return a result calculated
+ * with the previous settings.
+ *
+ * <p>The cache holds at most {@link Settings#getMaxSize()} results, evicting the least recently
+ * used result when full.
+ */
+public class CachingDependencyOrderer implements PipelineOrderer, PipelineStagePlanner {
+
+  private final DependencyOrderer orderer;
+  private final Settings settings;
+
+  private final Map<Key, Result> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public CachingDependencyOrderer() {
+    this(new Settings());
+  }
+
+  public CachingDependencyOrderer(Settings settings) {
+    this.orderer = new DependencyOrderer(settings);
+    this.settings = settings;
+
+    int maxSize = settings.getMaxSize();
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  @Override
+  public Collection<ProcessorDescriptor> orderProcessors(
+      Collection<ProcessorDescriptor> processors) {
+    Fingerprint fingerprint = new Fingerprint(processors, settings);
+
+    Result result = lookup(fingerprint.key);
+    if (result != null && result.order != null) {
+      hits.incrementAndGet();
+      return fingerprint.resolve(result.order);
+    }
+
+    misses.incrementAndGet();
+    Collection<ProcessorDescriptor> ordered = orderer.orderProcessors(fingerprint.processors);
+
+    int[] order = fingerprint.slotsOf(ordered);
+    if (order != null) storeOrder(fingerprint.key, order);
+
+    return ordered;
+  }
+
+  @Override
+  public List<List<ProcessorDescriptor>> planStages(Collection<ProcessorDescriptor> processors) {
+    Fingerprint fingerprint = new Fingerprint(processors, settings);
+
+    Result result = lookup(fingerprint.key);
+    if (result != null && result.stages != null) {
+      hits.incrementAndGet();
+
+      List<List<ProcessorDescriptor>> stages = new ArrayList<>(result.stages.length);
+      for (int[] stage : result.stages) stages.add(fingerprint.resolve(stage));
+      return stages;
+    }
+
+    misses.incrementAndGet();
+    List<List<ProcessorDescriptor>> stages = orderer.planStages(fingerprint.processors);
+
+    int[][] slots = new int[stages.size()][];
+    for (int i = 0; i < stages.size(); i++) {
+      slots[i] = fingerprint.slotsOf(stages.get(i));
+      if (slots[i] == null) return stages;
+    }
+
+    storeStages(fingerprint.key, slots);
+
+    return stages;
+  }
+
+  @Override
+  public Collection<SourceDescriptor> orderSources(Collection<SourceDescriptor> sources) {
+    return orderer.orderSources(sources);
+  }
+
+  /** The number of times a previously calculated result has been returned */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /** The number of times a result has had to be calculated */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /** The number of distinct sets of processors currently held in the cache */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  /** Remove all results from the cache. The hit and miss counters are not reset. */
+  public synchronized void clear() {
+    cache.clear();
+  }
+
+  private synchronized Result lookup(Key key) {
+    return cache.get(key);
+  }
+
+  private synchronized void storeOrder(Key key, int[] order) {
+    Result result = cache.get(key);
+    cache.put(key, new Result(order, result == null ? null : result.stages));
+  }
+
+  private synchronized void storeStages(Key key, int[][] stages) {
+    Result result = cache.get(key);
+    cache.put(key, new Result(result == null ? null : result.order, stages));
+  }
+
+  /**
+   * Fingerprint of a collection of processors. Each processor is hashed from its capabilities (and
+   * cost, if costs are in use), and the hashes are sorted so that the fingerprint doesn't depend on
+   * the order the processors were supplied in. Results are stored as positions (slots) in this
+   * sorted order, so that they can be mapped back on to a different collection of processors with
+   * the same fingerprint. The key also includes a hash of the other settings that affect the
+   * result.
+   */
+  private static final class Fingerprint {
+    private final List<ProcessorDescriptor> processors;
+    private final Key key;
+    private final ProcessorDescriptor[] bySlot;
+    private final Map<ProcessorDescriptor, Integer> slotOf;
+
+    private Fingerprint(Collection<ProcessorDescriptor> processors, Settings settings) {
+      this.processors = new ArrayList<>(processors);
+      ProcessorCosts costs = settings.getCosts();
+
+      int n = this.processors.size();
+      long[] hashes = new long[n];
+      Integer[] slots = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        ProcessorDescriptor p = this.processors.get(i);
+
+        long h = hash(p.capabilities());
+        if (costs != null) h = mix(h ^ Double.doubleToLongBits(costs.getCost(p)));
+
+        hashes[i] = h;
+        slots[i] = i;
+      }
+
+      // Sort is stable, so processors with the same hash keep the order they were supplied in
+      Arrays.sort(slots, (a, b) -> Long.compare(hashes[a], hashes[b]));
+
+      long[] sorted = new long[n];
+      this.bySlot = new ProcessorDescriptor[n];
+      this.slotOf = new HashMap<>();
+      for (int i = 0; i < n; i++) {
+        sorted[i] = hashes[slots[i]];
+        bySlot[i] = this.processors.get(slots[i]);
+        slotOf.putIfAbsent(bySlot[i], i);
+      }
+
+      this.key = new Key(hash(settings), sorted);
+    }
+
+    private List<ProcessorDescriptor> resolve(int[] slots) {
+      List<ProcessorDescriptor> resolved = new ArrayList<>(slots.length);
+      for (int slot : slots) resolved.add(bySlot[slot]);
+      return resolved;
+    }
+
+    /**
+     * Returns the slots of the processors, or null if they can't be represented as slots (e.g. the
+     * same processor was supplied more than once)
+     */
+    private int[] slotsOf(Collection<ProcessorDescriptor> ordered) {
+      if (slotOf.size() != processors.size()) return null;
+
+      int[] slots = new int[ordered.size()];
+      int i = 0;
+      for (ProcessorDescriptor p : ordered) {
+        Integer slot = slotOf.get(p);
+        if (slot == null) return null;
+
+        slots[i++] = slot;
+      }
+      return slots;
+    }
+  }
+
+  private static final class Key {
+    private final long settings;
+    private final long[] hashes;
+    private final int hashCode;
+
+    private Key(long settings, long[] hashes) {
+      this.settings = settings;
+      this.hashes = hashes;
+      this.hashCode = 31 * Long.hashCode(settings) + Arrays.hashCode(hashes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+
+      Key key = (Key) o;
+      return hashCode == key.hashCode
+          && settings == key.settings
+          && Arrays.equals(hashes, key.hashes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** Doesn't change once cached, so can be read outside the lock */
+  private static final class Result {
+    private final int[] order;
+    private final int[][] stages;
+
+    private Result(int[] order, int[][] stages) {
+      this.order = order;
+      this.stages = stages;
+    }
+  }
+
+  /**
+   * Hash the settings, other than the costs, that the {@link DependencyOrderer} reads when
+   * ordering. Required capabilities are hashed like the capabilities of a processor, and no
+   * required capabilities hash differently to an empty collection of them.
+   */
+  private static long hash(Settings settings) {
+    long h = hash(String.valueOf(settings.getCycleBreaking()));
+    h = mix(h * 31 + hash(String.valueOf(settings.getBoundsMatching())));
+
+    Collection<Capability> required = settings.getRequiredCapabilities();
+    h = mix(h * 31 + (required == null ? 0L : mix(hash(required.stream()) + 1)));
+    return h;
+  }
+
+  /**
+   * Hash the capabilities so that the same capabilities always give the same hash, regardless of
+   * the order they are declared in or the instances used to declare them
+   */
+  private static long hash(Capabilities capabilities) {
+    long h = 17L;
+    h = mix(h * 31 + hash(capabilities.creates()));
+    h = mix(h * 31 + hash(capabilities.processes()));
+    h = mix(h * 31 + hash(capabilities.deletes()));
+    return h;
+  }
+
+  private static long hash(Stream<Capability> capabilities) {
+    long[] hashes = capabilities.mapToLong(CachingDependencyOrderer::hash).sorted().toArray();
+
+    long h = hashes.length;
+    for (long l : hashes) h = mix(h * 31 + l);
+    return h;
+  }
+
+  private static long hash(Capability capability) {
+    if (capability instanceof ContentCapability) {
+      ContentCapability cc = (ContentCapability) capability;
+      return hash("content", cc.getType().getName());
+    } else if (capability instanceof AnnotationCapability) {
+      AnnotationCapability ac = (AnnotationCapability) capability;
+      return hash("annotation", ac.getType(), ac.getBounds().getName());
+    } else if (capability instanceof GroupCapability) {
+      GroupCapability gc = (GroupCapability) capability;
+      return hash("group", gc.getType());
+    } else {
+      return hash(capability.getClass().getName(), String.valueOf(capability));
+    }
+  }
+
+  /** 64-bit FNV-1a hash of the strings, which unlike {@link String#hashCode()} is stable */
+  private static long hash(String... values) {
+    long h = 0xcbf29ce484222325L;
+    for (String value : values) {
+      for (byte b : String.valueOf(value).getBytes(StandardCharsets.UTF_8)) {
+        h ^= b & 0xff;
+        h *= 0x100000001b3L;
+      }
+
+      // Separator, so that ("ab", "c") and ("a", "bc") hash differently
+      h ^= 0xff;
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /** Finalisation step of SplitMix64, to spread the bits of combined hashes */
+  private static long mix(long h) {
+    h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+    h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+    return h ^ (h >>> 31);
+  }
+
+  public static class Settings extends DependencyOrderer.Settings {
+    private int maxSize = 64;
+
+    public Settings() {
+      // Default settings
+    }
+
+    /** The maximum number of results to cache */
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public boolean validate() {
+      return super.validate() && maxSize > 0;
+    }
+  }
+}
@@ -0,0 +1,343 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.capabilities.AnnotationCapability;
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.ContentCapability;
+import io.annot8.api.capabilities.GroupCapability;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import uk.gov.dstl.annot8.orderers.dependency.DependencyOrderer.BoundsMatching;
+
+/**
+ * Inverted index from capabilities to the processors that declare them, so that the dependencies
+ * of a processor can be found by looking up its capabilities rather than by comparing it against
+ * every other processor.
+ *
+ * <p>Processors are identified by an integer id chosen by the caller, and lookups return a {@link
+ * BitSet} of ids. Capabilities are matched as described by {@link #matches(Capability, Capability,
+ * BoundsMatching)}.
+ */
+final class CapabilityIndex {
+  static final String WILDCARD = "*";
+
+  // All supertypes of a class (including interfaces and the class itself), computed once per class
+  private static final ClassValue<Set<Class<?>>> SUPERTYPES =
+      new ClassValue<>() {
+        @Override
+        protected Set<Class<?>> computeValue(Class<?> type) {
+          Set<Class<?>> supertypes = new HashSet<>();
+          supertypes.add(type);
+
+          if (type.getSuperclass() != null) supertypes.addAll(get(type.getSuperclass()));
+          for (Class<?> i : type.getInterfaces()) supertypes.addAll(get(i));
+
+          return Set.copyOf(supertypes);
+        }
+      };
+
+  private final BoundsMatching boundsMatching;
+
+  private final Buckets creates = new Buckets();
+  private final Buckets processes = new Buckets();
+  private final Buckets deletes = new Buckets();
+
+  private final Map<Integer, Entry> entries = new HashMap<>();
+
+  CapabilityIndex() {
+    this(BoundsMatching.STRICT);
+  }
+
+  CapabilityIndex(BoundsMatching boundsMatching) {
+    this.boundsMatching = boundsMatching;
+  }
+
+  /** Add a processor to the index, replacing any existing processor with the same id */
+  void add(int id, Capabilities capabilities) {
+    remove(id);
+
+    Entry e =
+        new Entry(
+            capabilities.creates().collect(Collectors.toList()),
+            capabilities.processes().collect(Collectors.toList()),
+            capabilities.deletes().collect(Collectors.toList()));
+
+    e.creates.forEach(c -> creates.add(c, id));
+    e.processes.forEach(c -> processes.add(c, id));
+    e.deletes.forEach(c -> deletes.add(c, id));
+
+    entries.put(id, e);
+  }
+
+  /** Remove a processor from the index, if present */
+  void remove(int id) {
+    Entry e = entries.remove(id);
+    if (e == null) return;
+
+    e.creates.forEach(c -> creates.remove(c, id));
+    e.processes.forEach(c -> processes.remove(c, id));
+    e.deletes.forEach(c -> deletes.remove(c, id));
+  }
+
+  /**
+   * Returns the ids of the processors that the given processor depends on, i.e. those that must
+   * run before it. The processor itself is never included.
+   */
+  BitSet dependenciesOf(int id) {
+    BitSet ids = new BitSet();
+
+    Entry e = entries.get(id);
+    if (e == null) return ids;
+
+    // P2 is dependent on P1 if:
+    //  - P2 processes content/annotations/groups that P1 creates, or
+    //  - P2 deletes content/annotations/groups that P1 creates, or
+    //  - P2 deletes content/annotations/groups that P1 processes
+    // in each case P2 has the required capability, and P1 the provided capability
+    e.processes.forEach(c -> creates.collect(c, true, ids));
+    e.deletes.forEach(
+        c -> {
+          creates.collect(c, true, ids);
+          processes.collect(c, true, ids);
+        });
+
+    ids.clear(id);
+    return ids;
+  }
+
+  /**
+   * Returns the ids of the processors that depend on the given processor, i.e. those that must run
+   * after it. The processor itself is never included.
+   */
+  BitSet dependentsOf(int id) {
+    BitSet ids = new BitSet();
+
+    Entry e = entries.get(id);
+    if (e == null) return ids;
+
+    e.creates.forEach(
+        c -> {
+          processes.collect(c, false, ids);
+          deletes.collect(c, false, ids);
+        });
+    e.processes.forEach(c -> deletes.collect(c, false, ids));
+
+    ids.clear(id);
+    return ids;
+  }
+
+  /** Returns the ids of the processors that create something matching the required capability */
+  BitSet creatorsOf(Capability required) {
+    BitSet ids = new BitSet();
+    creates.collect(required, true, ids);
+    return ids;
+  }
+
+  /** Returns true if the two capabilities refer to the same thing, with strict bounds matching */
+  static boolean matches(Capability c1, Capability c2) {
+    return matches(c1, c2, BoundsMatching.STRICT);
+  }
+
+  /**
+   * Returns true if the provided capability satisfies the required capability. This is the
+   * definition that the index implements; it is retained here as the reference for the lookup
+   * logic.
+   */
+  static boolean matches(Capability required, Capability provided, BoundsMatching boundsMatching) {
+    Capability c1 = required;
+    Capability c2 = provided;
+
+    if (c1 == c2) return true;
+
+    if (c1 instanceof ContentCapability) {
+      if (!(c2 instanceof ContentCapability)) return false;
+
+      return ((ContentCapability) c1).getType().equals(((ContentCapability) c2).getType());
+    } else if (c1 instanceof AnnotationCapability) {
+      if (!(c2 instanceof AnnotationCapability)) return false;
+
+      AnnotationCapability a1 = (AnnotationCapability) c1;
+      AnnotationCapability a2 = (AnnotationCapability) c2;
+
+      return boundsMatch(a1.getBounds(), a2.getBounds(), boundsMatching)
+          && (a1.getType().equals(a2.getType())
+              || a1.getType().equals(WILDCARD)
+              || a2.getType().equals(WILDCARD));
+    } else if (c1 instanceof GroupCapability) {
+      if (!(c2 instanceof GroupCapability)) return false;
+
+      return ((GroupCapability) c1).getType().equals(((GroupCapability) c2).getType())
+          || ((GroupCapability) c1).getType().equals(WILDCARD)
+          || ((GroupCapability) c2).getType().equals(WILDCARD);
+    }
+
+    return false;
+  }
+
+  /** Returns true if the provided bounds satisfy the required bounds */
+  static boolean boundsMatch(Class<?> required, Class<?> provided, BoundsMatching boundsMatching) {
+    switch (boundsMatching) {
+      case SUBTYPE:
+        return SUPERTYPES.get(provided).contains(required);
+      case SUPERTYPE:
+        return SUPERTYPES.get(required).contains(provided);
+      default:
+        return required.equals(provided);
+    }
+  }
+
+  /**
+   * Returns the candidate bounds that match the given bounds. If required is true, the given bounds
+   * are required and the candidates are provided, otherwise it is the other way round.
+   */
+  private Collection<Class<?>> matchingBounds(
+      Class<?> bounds, boolean required, Set<Class<?>> candidates) {
+    if (boundsMatching == BoundsMatching.STRICT) return Collections.singleton(bounds);
+
+    // Whether the given bounds must be a subtype of the candidate, or the other way round
+    boolean boundsAreSubtype = required == (boundsMatching == BoundsMatching.SUPERTYPE);
+
+    if (boundsAreSubtype) {
+      return SUPERTYPES.get(bounds);
+    } else {
+      return candidates.stream()
+          .filter(c -> SUPERTYPES.get(c).contains(bounds))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static <K> void clear(Map<K, BitSet> map, K key, int id) {
+    BitSet bs = map.get(key);
+    if (bs == null) return;
+
+    bs.clear(id);
+    if (bs.isEmpty()) map.remove(key);
+  }
+
+  private static void or(BitSet target, BitSet source) {
+    if (source != null) target.or(source);
+  }
+
+  private static class Entry {
+    private final List<Capability> creates;
+    private final List<Capability> processes;
+    private final List<Capability> deletes;
+
+    private Entry(
+        List<Capability> creates, List<Capability> processes, List<Capability> deletes) {
+      this.creates = creates;
+      this.processes = processes;
+      this.deletes = deletes;
+    }
+  }
+
+  /** Ids of processors keyed by a single capability role (creates, processes or deletes) */
+  private class Buckets {
+    private final Map<Class<?>, BitSet> content = new HashMap<>();
+
+    // Bounds -> Type -> Ids, and Bounds -> Ids (of any type) to answer wildcard lookups
+    private final Map<Class<?>, Map<String, BitSet>> annotations = new HashMap<>();
+    private final Map<Class<?>, BitSet> annotationsAnyType = new HashMap<>();
+
+    private final Map<String, BitSet> groups = new HashMap<>();
+    private final BitSet groupsAnyType = new BitSet();
+
+    // Capabilities of an unknown kind only ever match themselves
+    private final Map<Capability, BitSet> other = new IdentityHashMap<>();
+
+    private void add(Capability c, int id) {
+      if (c instanceof ContentCapability) {
+        content.computeIfAbsent(((ContentCapability) c).getType(), k -> new BitSet()).set(id);
+      } else if (c instanceof AnnotationCapability) {
+        AnnotationCapability ac = (AnnotationCapability) c;
+        annotations
+            .computeIfAbsent(ac.getBounds(), k -> new HashMap<>())
+            .computeIfAbsent(ac.getType(), k -> new BitSet())
+            .set(id);
+        annotationsAnyType.computeIfAbsent(ac.getBounds(), k -> new BitSet()).set(id);
+      } else if (c instanceof GroupCapability) {
+        groups.computeIfAbsent(((GroupCapability) c).getType(), k -> new BitSet()).set(id);
+        groupsAnyType.set(id);
+      } else {
+        other.computeIfAbsent(c, k -> new BitSet()).set(id);
+      }
+    }
+
+    private void remove(Capability c, int id) {
+      if (c instanceof ContentCapability) {
+        clear(content, ((ContentCapability) c).getType(), id);
+      } else if (c instanceof AnnotationCapability) {
+        AnnotationCapability ac = (AnnotationCapability) c;
+        Map<String, BitSet> byType = annotations.get(ac.getBounds());
+        if (byType != null) {
+          clear(byType, ac.getType(), id);
+          if (byType.isEmpty()) annotations.remove(ac.getBounds());
+        }
+        clear(annotationsAnyType, ac.getBounds(), id);
+      } else if (c instanceof GroupCapability) {
+        clear(groups, ((GroupCapability) c).getType(), id);
+        groupsAnyType.clear(id);
+      } else {
+        clear(other, c, id);
+      }
+    }
+
+    /**
+     * Add the ids of all processors with a capability matching c to ids. If required is true, c is
+     * the required capability and those in the buckets are provided, otherwise it is the other way
+     * round.
+     */
+    private void collect(Capability c, boolean required, BitSet ids) {
+      if (c instanceof ContentCapability) {
+        or(ids, content.get(((ContentCapability) c).getType()));
+      } else if (c instanceof AnnotationCapability) {
+        AnnotationCapability ac = (AnnotationCapability) c;
+        for (Class<?> bounds :
+            matchingBounds(ac.getBounds(), required, annotationsAnyType.keySet())) {
+          if (WILDCARD.equals(ac.getType())) {
+            or(ids, annotationsAnyType.get(bounds));
+          } else {
+            Map<String, BitSet> byType = annotations.get(bounds);
+            if (byType != null) {
+              or(ids, byType.get(ac.getType()));
+              or(ids, byType.get(WILDCARD));
+            }
+          }
+        }
+      } else if (c instanceof GroupCapability) {
+        String type = ((GroupCapability) c).getType();
+        if (WILDCARD.equals(type)) {
+          or(ids, groupsAnyType);
+        } else {
+          or(ids, groups.get(type));
+          or(ids, groups.get(WILDCARD));
+        }
+      } else {
+        or(ids, other.get(c));
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import uk.gov.dstl.annot8.orderers.dependency.DependencyOrderer.BoundsMatching;
+
+/**
+ * Dependency graph of processors, with the processors numbered 0..n-1 in the order they were
+ * supplied and the edges held as adjacency bitsets. This avoids the per-edge objects and hash maps
+ * of a general purpose graph, which matters when wildcard capabilities make the graph dense.
+ *
+ * <p>An edge from u to v means that v depends on u, i.e. u must run before v. Edges are iterated in
+ * ascending order of processor number, which is the order a pairwise comparison of the processors
+ * would find them in.
+ */
+final class DependencyGraph {
+  private final List<ProcessorDescriptor> processors;
+  private final BitSet[] dependents;
+  private final BitSet[] dependencies;
+
+  private DependencyGraph(List<ProcessorDescriptor> processors) {
+    this.processors = processors;
+
+    int n = processors.size();
+    this.dependents = new BitSet[n];
+    this.dependencies = new BitSet[n];
+    for (int i = 0; i < n; i++) {
+      dependents[i] = new BitSet();
+      dependencies[i] = new BitSet();
+    }
+  }
+
+  /**
+   * Build the dependency graph of the processors. If the same processor is supplied more than once,
+   * only the first is used.
+   */
+  static DependencyGraph build(Collection<ProcessorDescriptor> processors) {
+    return build(processors, BoundsMatching.STRICT);
+  }
+
+  static DependencyGraph build(
+      Collection<ProcessorDescriptor> processors, BoundsMatching boundsMatching) {
+    DependencyGraph g = new DependencyGraph(new ArrayList<>(new LinkedHashSet<>(processors)));
+
+    // Index the capabilities of all processors, so that dependencies can be looked up rather than
+    // found by comparing all pairs of processors
+    CapabilityIndex index = new CapabilityIndex(boundsMatching);
+    for (int i = 0; i < g.size(); i++) {
+      index.add(i, g.get(i).capabilities());
+    }
+
+    for (int u = 0; u < g.size(); u++) {
+      BitSet dependents = index.dependentsOf(u);
+      for (int v = dependents.nextSetBit(0); v >= 0; v = dependents.nextSetBit(v + 1)) {
+        g.addEdge(u, v);
+      }
+    }
+
+    return g;
+  }
+
+  int size() {
+    return processors.size();
+  }
+
+  ProcessorDescriptor get(int i) {
+    return processors.get(i);
+  }
+
+  /** The processors that depend on u. The returned set must not be modified. */
+  BitSet dependentsOf(int u) {
+    return dependents[u];
+  }
+
+  /** The processors that v depends on. The returned set must not be modified. */
+  BitSet dependenciesOf(int v) {
+    return dependencies[v];
+  }
+
+  void addEdge(int u, int v) {
+    dependents[u].set(v);
+    dependencies[v].set(u);
+  }
+
+  void removeEdge(int u, int v) {
+    dependents[u].clear(v);
+    dependencies[v].clear(u);
+  }
+
+  /**
+   * Returns the processors in topological order, using Kahn's algorithm with a first in, first out
+   * queue. Processors with no dependencies are taken in the order supplied, so the order is the
+   * same as that of jgrapht's {@link org.jgrapht.traverse.TopologicalOrderIterator}. Processors
+   * that lie on a cycle are omitted.
+   */
+  int[] topologicalOrder() {
+    int n = size();
+    int[] inDegree = new int[n];
+    int[] queue = new int[n];
+    int head = 0;
+    int tail = 0;
+
+    for (int v = 0; v < n; v++) {
+      inDegree[v] = dependencies[v].cardinality();
+      if (inDegree[v] == 0) queue[tail++] = v;
+    }
+
+    while (head < tail) {
+      BitSet next = dependents[queue[head++]];
+      for (int w = next.nextSetBit(0); w >= 0; w = next.nextSetBit(w + 1)) {
+        if (--inDegree[w] == 0) queue[tail++] = w;
+      }
+    }
+
+    return tail == n ? queue : Arrays.copyOf(queue, tail);
+  }
+
+  /**
+   * Returns the strongly connected components of the graph, found with an iterative version of
+   * Tarjan's algorithm. The processors within each component are in ascending order.
+   */
+  List<int[]> stronglyConnectedComponents() {
+    int n = size();
+    int[] indexOf = new int[n];
+    int[] lowLink = new int[n];
+    Arrays.fill(indexOf, -1);
+
+    BitSet onStack = new BitSet(n);
+    int[] stack = new int[n];
+    int stackSize = 0;
+
+    // Replaces the recursion, holding the processors being visited and how far through their
+    // dependents we are
+    int[] callStack = new int[n];
+    int[] cursor = new int[n];
+    int callStackSize = 0;
+
+    int counter = 0;
+    List<int[]> components = new ArrayList<>();
+
+    for (int root = 0; root < n; root++) {
+      if (indexOf[root] != -1) continue;
+
+      indexOf[root] = lowLink[root] = counter++;
+      stack[stackSize++] = root;
+      onStack.set(root);
+      callStack[callStackSize++] = root;
+      cursor[root] = 0;
+
+      while (callStackSize > 0) {
+        int v = callStack[callStackSize - 1];
+        int w = dependents[v].nextSetBit(cursor[v]);
+
+        if (w >= 0) {
+          cursor[v] = w + 1;
+
+          if (indexOf[w] == -1) {
+            indexOf[w] = lowLink[w] = counter++;
+            stack[stackSize++] = w;
+            onStack.set(w);
+            callStack[callStackSize++] = w;
+            cursor[w] = 0;
+          } else if (onStack.get(w)) {
+            lowLink[v] = Math.min(lowLink[v], indexOf[w]);
+          }
+          continue;
+        }
+
+        callStackSize--;
+        if (callStackSize > 0) {
+          int parent = callStack[callStackSize - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+        }
+
+        if (lowLink[v] == indexOf[v]) {
+          int start = stackSize;
+          do {
+            start--;
+            onStack.clear(stack[start]);
+          } while (stack[start] != v);
+
+          int[] component = Arrays.copyOfRange(stack, start, stackSize);
+          Arrays.sort(component);
+          components.add(component);
+
+          stackSize = start;
+        }
+      }
+    }
+
+    return components;
+  }
+
+  /** Copy the graph into a jgrapht graph, for debugging, export or further analysis */
+  Graph<ProcessorDescriptor, DefaultEdge> toGraph() {
+    Graph<ProcessorDescriptor, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+    processors.forEach(g::addVertex);
+
+    for (int u = 0; u < size(); u++) {
+      for (int v = dependents[u].nextSetBit(0); v >= 0; v = dependents[u].nextSetBit(v + 1)) {
+        g.addEdge(processors.get(u), processors.get(v));
+      }
+    }
+
+    return g;
+  }
+}
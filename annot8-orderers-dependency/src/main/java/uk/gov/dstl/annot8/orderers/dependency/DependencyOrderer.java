@@ -15,78 +15,329 @@
  */
 package uk.gov.dstl.annot8.orderers.dependency;
 
-import io.annot8.api.capabilities.AnnotationCapability;
-import io.annot8.api.capabilities.Capabilities;
 import io.annot8.api.capabilities.Capability;
-import io.annot8.api.capabilities.ContentCapability;
-import io.annot8.api.capabilities.GroupCapability;
 import io.annot8.api.components.Annot8ComponentDescriptor;
 import io.annot8.api.components.ProcessorDescriptor;
 import io.annot8.api.components.SourceDescriptor;
 import io.annot8.api.pipelines.PipelineOrderer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.cycle.DirectedSimpleCycles;
 import org.jgrapht.alg.cycle.HawickJamesSimpleCycles;
-import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.traverse.TopologicalOrderIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Orderer that builds a dependency map of Annot8 processors and returns them in an order such that
  * the dependencies are satisfied. Sources are returned in the order they are specified.
+ *
+ * <p>The same dependency map can also be used to group the processors into stages of mutually
+ * independent processors, see {@link #planStages(Collection)}.
+ *
+ * <p>If the capabilities that the pipeline must produce are declared (see {@link
+ * Settings#setRequiredCapabilities(Collection)}), processors that can't contribute to them are
+ * removed, see {@link #findRedundantProcessors(Collection)}.
  */
-public class DependencyOrderer implements PipelineOrderer {
+public class DependencyOrderer implements PipelineOrderer, PipelineStagePlanner {
   private static final Logger LOGGER = LoggerFactory.getLogger(DependencyOrderer.class);
 
+  private final Settings settings;
+
+  public DependencyOrderer() {
+    this(new Settings());
+  }
+
+  public DependencyOrderer(Settings settings) {
+    this.settings = settings;
+  }
+
   @Override
   public Collection<ProcessorDescriptor> orderProcessors(
       Collection<ProcessorDescriptor> processors) {
-    Graph<ProcessorDescriptor, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+    if (settings.getCosts() != null) {
+      ProcessorSchedule schedule = schedule(processors);
+      LOGGER.info(
+          "Expected makespan of {} processors is {} (total cost {})",
+          schedule.getOrder().size(),
+          schedule.getMakespan(),
+          schedule.getTotalCost());
 
-    // Build a dependency graph
+      return schedule.getOrder();
+    }
 
-    // Add all processors to the graph
-    processors.forEach(g::addVertex);
+    DependencyGraph g = buildAcyclicGraph(processors);
 
-    // Compare all pairs of processors, and identify dependencies
-    for (ProcessorDescriptor p1 : processors) {
-      Capabilities c1 = p1.capabilities();
+    // Return graph in topological order
+    int[] order = g.topologicalOrder();
+    List<ProcessorDescriptor> orderedProcessors = new ArrayList<>(order.length);
+    for (int i : order) orderedProcessors.add(g.get(i));
 
-      for (ProcessorDescriptor p2 : processors) {
-        if (p1 == p2) continue;
+    return orderedProcessors;
+  }
 
-        Capabilities c2 = p2.capabilities();
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Each processor is placed in the earliest stage that follows all of the processors it
+   * depends on, so the number of stages is the length of the longest chain of dependencies.
+   * Processors within a stage are returned in the order they were supplied.
+   */
+  @Override
+  public List<List<ProcessorDescriptor>> planStages(Collection<ProcessorDescriptor> processors) {
+    DependencyGraph g = buildAcyclicGraph(processors);
+    int[] order = g.topologicalOrder();
 
-        // P2 is dependent on P1 if:
-        //  - P2 processes content/annotations/groups that P1 creates, or
-        //  - P2 deletes content/annotations/groups that P1 creates, or
-        //  - P2 deletes content/annotations/groups that P1 processes
+    int[] stageOf = new int[g.size()];
+    int stageCount = 0;
 
-        if (c2.processes().anyMatch(cp -> c1.creates().anyMatch(cc -> capabilityEqual(cp, cc)))
-            || c2.deletes().anyMatch(cd -> c1.creates().anyMatch(cc -> capabilityEqual(cd, cc)))
-            || c2.deletes().anyMatch(cd -> c1.processes().anyMatch(cc -> capabilityEqual(cd, cc))))
-          g.addEdge(
-              p1,
-              p2); // Direction of the edge is towards the dependee (i.e. the one using the output)
+    // Visiting in topological order guarantees all dependencies have been assigned a stage
+    for (int v : order) {
+      int stage = 0;
+      BitSet dependencies = g.dependenciesOf(v);
+      for (int u = dependencies.nextSetBit(0); u >= 0; u = dependencies.nextSetBit(u + 1)) {
+        stage = Math.max(stage, stageOf[u] + 1);
       }
+      stageOf[v] = stage;
+
+      stageCount = Math.max(stageCount, stage + 1);
     }
 
-    // Check for circular dependencies
-    DirectedSimpleCycles<ProcessorDescriptor, DefaultEdge> dsc = new HawickJamesSimpleCycles<>(g);
-    List<List<ProcessorDescriptor>> cycles = dsc.findSimpleCycles();
+    // Within a stage, processors are kept in the order they were supplied
+    List<List<Integer>> stages = new ArrayList<>(stageCount);
+    for (int i = 0; i < stageCount; i++) stages.add(new ArrayList<>());
+
+    for (int v = 0; v < g.size(); v++) stages.get(stageOf[v]).add(v);
+
+    // Unless we have costs, in which case the start of the most expensive chains come first
+    if (settings.getCosts() != null) {
+      double[] ranks = upwardRanks(g, order, settings.getCosts());
+      stages.forEach(
+          stage -> stage.sort(Comparator.comparingDouble((Integer v) -> ranks[v]).reversed()));
+    }
+
+    return stages.stream()
+        .map(stage -> stage.stream().map(g::get).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Order the processors using the estimated costs from the settings (or the default cost for
+   * every processor, if there are none), and calculate the expected makespan.
+   *
+   * <p>Each processor is given a priority equal to the cost of the most expensive chain of
+   * dependencies from it to the end of the pipeline (its upward rank, as used by HEFT). The
+   * processors are then ordered by a topological sort which always picks the ready processor with
+   * the highest priority, so that the critical path is started as early as possible. Ties are
+   * broken by the order the processors were supplied in.
+   */
+  public ProcessorSchedule schedule(Collection<ProcessorDescriptor> processors) {
+    ProcessorCosts costs = settings.getCosts() == null ? new ProcessorCosts() : settings.getCosts();
+
+    DependencyGraph g = buildAcyclicGraph(processors);
+    double[] ranks = upwardRanks(g, g.topologicalOrder(), costs);
+
+    int[] inDegree = new int[g.size()];
+    PriorityQueue<Integer> ready =
+        new PriorityQueue<>(
+            Comparator.comparingDouble((Integer v) -> ranks[v])
+                .reversed()
+                .thenComparing(Comparator.naturalOrder()));
+    for (int v = 0; v < g.size(); v++) {
+      inDegree[v] = g.dependenciesOf(v).cardinality();
+      if (inDegree[v] == 0) ready.add(v);
+    }
+
+    List<ProcessorDescriptor> order = new ArrayList<>(g.size());
+    int first = -1;
+    while (!ready.isEmpty()) {
+      int v = ready.poll();
+      if (first == -1) first = v;
+      order.add(g.get(v));
+
+      BitSet dependents = g.dependentsOf(v);
+      for (int w = dependents.nextSetBit(0); w >= 0; w = dependents.nextSetBit(w + 1)) {
+        if (--inDegree[w] == 0) ready.add(w);
+      }
+    }
+
+    // The critical path starts at the processor with the highest rank, and follows the most
+    // expensive dependent processor at each step
+    List<ProcessorDescriptor> criticalPath = new ArrayList<>();
+    int current = first;
+    while (current != -1) {
+      criticalPath.add(g.get(current));
+
+      int next = -1;
+      BitSet dependents = g.dependentsOf(current);
+      for (int w = dependents.nextSetBit(0); w >= 0; w = dependents.nextSetBit(w + 1)) {
+        if (next == -1 || ranks[w] > ranks[next]) next = w;
+      }
+      current = next;
+    }
+
+    double makespan = first == -1 ? 0.0 : ranks[first];
+    double totalCost = order.stream().mapToDouble(costs::getCost).sum();
+
+    return new ProcessorSchedule(order, criticalPath, makespan, totalCost);
+  }
+
+  /**
+   * Returns the processors that can't contribute to the required capabilities, in the order they
+   * were supplied. If no capabilities are required, no processors are redundant.
+   *
+   * <p>A processor is retained if it creates something that is required, or if it creates nothing
+   * (in which case it is assumed to be there for its side effects, such as persisting or deleting
+   * data). Any processor that a retained processor depends on, directly or indirectly, is also
+   * retained.
+   */
+  public List<ProcessorDescriptor> findRedundantProcessors(
+      Collection<ProcessorDescriptor> processors) {
+    Collection<Capability> required = settings.getRequiredCapabilities();
+    if (required == null) return Collections.emptyList();
+
+    List<ProcessorDescriptor> processorList = new ArrayList<>(processors);
+    CapabilityIndex index = new CapabilityIndex(settings.getBoundsMatching());
+    for (int i = 0; i < processorList.size(); i++) {
+      index.add(i, processorList.get(i).capabilities());
+    }
+
+    BitSet retained = new BitSet();
+    for (Capability c : required) retained.or(index.creatorsOf(c));
+    for (int i = 0; i < processorList.size(); i++) {
+      if (processorList.get(i).capabilities().creates().findAny().isEmpty()) retained.set(i);
+    }
+
+    // Walk backwards from the retained processors, retaining everything they depend on
+    Deque<Integer> toVisit = new ArrayDeque<>();
+    retained.stream().forEach(toVisit::push);
+    while (!toVisit.isEmpty()) {
+      BitSet dependencies = index.dependenciesOf(toVisit.pop());
+      dependencies.andNot(retained);
+
+      retained.or(dependencies);
+      dependencies.stream().forEach(toVisit::push);
+    }
+
+    List<ProcessorDescriptor> redundant = new ArrayList<>();
+    for (int i = 0; i < processorList.size(); i++) {
+      if (!retained.get(i)) redundant.add(processorList.get(i));
+    }
+
+    return redundant;
+  }
+
+  /**
+   * Returns the dependency graph that would be used to order the processors, after any redundant
+   * processors and cyclic dependencies have been removed. The graph isn't used for ordering, and is
+   * intended for debugging or export (e.g. with one of the jgrapht exporters).
+   */
+  public Graph<ProcessorDescriptor, DefaultEdge> dependencyGraph(
+      Collection<ProcessorDescriptor> processors) {
+    return buildAcyclicGraph(processors).toGraph();
+  }
+
+  @Override
+  public Collection<SourceDescriptor> orderSources(Collection<SourceDescriptor> sources) {
+    return sources;
+  }
+
+  /**
+   * Build the dependency graph of the processors that aren't redundant, and remove dependencies as
+   * required to make it acyclic
+   */
+  private DependencyGraph buildAcyclicGraph(Collection<ProcessorDescriptor> processors) {
+    DependencyGraph g = DependencyGraph.build(prune(processors), settings.getBoundsMatching());
+    breakCycles(g);
+
+    return g;
+  }
+
+  /** Build the dependency graph of all of the processors, without removing redundant ones */
+  DependencyGraph buildGraph(Collection<ProcessorDescriptor> processors) {
+    return DependencyGraph.build(processors, settings.getBoundsMatching());
+  }
+
+  /** Remove dependencies from the graph, as configured, until it is acyclic */
+  void breakCycles(DependencyGraph g) {
+    // Any component with more than one processor contains at least one cycle
+    List<int[]> components =
+        g.stronglyConnectedComponents().stream()
+            .filter(c -> c.length > 1)
+            .sorted(Comparator.comparingInt(c -> c[0]))
+            .collect(Collectors.toList());
+
+    if (components.isEmpty()) return;
+
+    LOGGER.warn(
+        "Cycle(s) detected in dependency graph - ordering of processors may not be optimum");
 
     // Remove edges to break cycles, even thought this may give a sub-optimal (or even bad) ordering
+    if (settings.getCycleBreaking() == CycleBreaking.STRONGLY_CONNECTED_COMPONENTS) {
+      breakCyclesByComponents(g, components);
+    } else {
+      breakCyclesBySimpleCycles(g);
+    }
+  }
+
+  private Collection<ProcessorDescriptor> prune(Collection<ProcessorDescriptor> processors) {
+    List<ProcessorDescriptor> redundant = findRedundantProcessors(processors);
+    if (redundant.isEmpty()) return processors;
 
-    if (!cycles.isEmpty())
-      LOGGER.warn(
-          "Cycle(s) detected in dependency graph - ordering of processors may not be optimum");
+    LOGGER.info(
+        "Removed {} processors that do not contribute to the required capabilities: {}",
+        redundant.size(),
+        redundant.stream()
+            .map(Annot8ComponentDescriptor::getName)
+            .collect(Collectors.joining(", ")));
+
+    Set<ProcessorDescriptor> removed = new HashSet<>(redundant);
+    return processors.stream().filter(p -> !removed.contains(p)).collect(Collectors.toList());
+  }
+
+  /**
+   * Calculate the upward rank of each processor, that is the cost of the processor plus the
+   * highest upward rank of any processor that depends on it
+   */
+  private static double[] upwardRanks(DependencyGraph g, int[] order, ProcessorCosts costs) {
+    double[] ranks = new double[g.size()];
+    for (int i = order.length - 1; i >= 0; i--) {
+      int v = order[i];
+
+      double rank = 0.0;
+      BitSet dependents = g.dependentsOf(v);
+      for (int w = dependents.nextSetBit(0); w >= 0; w = dependents.nextSetBit(w + 1)) {
+        rank = Math.max(rank, ranks[w]);
+      }
+      ranks[v] = costs.getCost(g.get(v)) + rank;
+    }
+
+    return ranks;
+  }
+
+  /**
+   * Break cycles by enumerating the simple cycles, and removing one edge at a time. This requires a
+   * jgrapht copy of the graph, which is only made once we know there is a cycle to break.
+   */
+  private static void breakCyclesBySimpleCycles(DependencyGraph dg) {
+    Graph<ProcessorDescriptor, DefaultEdge> g = dg.toGraph();
+
+    // Check for circular dependencies
+    DirectedSimpleCycles<ProcessorDescriptor, DefaultEdge> dsc = new HawickJamesSimpleCycles<>(g);
+    List<List<ProcessorDescriptor>> cycles = dsc.findSimpleCycles();
 
     while (!cycles.isEmpty()) {
       List<ProcessorDescriptor> cycle = cycles.remove(0);
@@ -114,47 +365,175 @@ public class DependencyOrderer implements PipelineOrderer {
       cycles = dsc.findSimpleCycles();
     }
 
-    // Return graph in topological order
-    TopologicalOrderIterator<ProcessorDescriptor, DefaultEdge> orderIterator =
-        new TopologicalOrderIterator<>(g);
-    List<ProcessorDescriptor> orderedProcessors = new ArrayList<>(processors.size());
+    // Copy the removals back
+    for (int u = 0; u < dg.size(); u++) {
+      BitSet dependents = (BitSet) dg.dependentsOf(u).clone();
+      for (int v = dependents.nextSetBit(0); v >= 0; v = dependents.nextSetBit(v + 1)) {
+        if (!g.containsEdge(dg.get(u), dg.get(v))) dg.removeEdge(u, v);
+      }
+    }
+  }
 
-    orderIterator.forEachRemaining(orderedProcessors::add);
+  /**
+   * Break cycles by removing the back edges of a depth first search within each strongly connected
+   * component. Every cycle lies within a single component, so edges between components are never
+   * removed, and the whole process is linear in the size of the graph.
+   */
+  private static void breakCyclesByComponents(DependencyGraph g, List<int[]> components) {
+    int[] componentOf = new int[g.size()];
+    Arrays.fill(componentOf, -1);
 
-    return orderedProcessors;
+    List<List<int[]>> backEdges = new ArrayList<>(components.size());
+    for (int i = 0; i < components.size(); i++) {
+      for (int v : components.get(i)) componentOf[v] = i;
+      backEdges.add(new ArrayList<>());
+    }
+
+    // Depth first search, only following edges within a component, started from each processor in
+    // the order they were supplied so that the edges removed are deterministic
+    BitSet visited = new BitSet(g.size());
+    BitSet onPath = new BitSet(g.size());
+    int[] path = new int[g.size()];
+    int[] cursor = new int[g.size()];
+
+    for (int root = 0; root < g.size(); root++) {
+      int component = componentOf[root];
+      if (component == -1 || visited.get(root)) continue;
+
+      visited.set(root);
+      onPath.set(root);
+      path[0] = root;
+      cursor[root] = 0;
+      int pathLength = 1;
+
+      while (pathLength > 0) {
+        int v = path[pathLength - 1];
+        int w = g.dependentsOf(v).nextSetBit(cursor[v]);
+        if (w < 0) {
+          onPath.clear(v);
+          pathLength--;
+          continue;
+        }
+
+        cursor[v] = w + 1;
+        if (componentOf[w] != component) continue;
+
+        if (onPath.get(w)) {
+          backEdges.get(component).add(new int[] {v, w});
+        } else if (!visited.get(w)) {
+          visited.set(w);
+          onPath.set(w);
+          path[pathLength++] = w;
+          cursor[w] = 0;
+        }
+      }
+    }
+
+    // Removing the back edges leaves each component acyclic
+    for (int i = 0; i < components.size(); i++) {
+      LOGGER.info(
+          "The following {} processors form a cycle: {}",
+          components.get(i).length,
+          Arrays.stream(components.get(i))
+              .mapToObj(v -> g.get(v).getName())
+              .collect(Collectors.joining(", ")));
+
+      for (int[] edge : backEdges.get(i)) {
+        g.removeEdge(edge[0], edge[1]);
+        LOGGER.info(
+            "Dependency between {} and {} removed to break cycle",
+            g.get(edge[0]).getName(),
+            g.get(edge[1]).getName());
+      }
+    }
   }
 
-  @Override
-  public Collection<SourceDescriptor> orderSources(Collection<SourceDescriptor> sources) {
-    return sources;
+  /** Strategy used to remove dependencies when the processors have circular dependencies */
+  public enum CycleBreaking {
+    /**
+     * Enumerate every simple cycle and remove one edge at a time, re-enumerating the cycles after
+     * each removal. This removes as few dependencies as possible, but may take exponential time on
+     * densely connected graphs.
+     */
+    SIMPLE_CYCLES,
+    /**
+     * Remove a feedback arc set from within each strongly connected component. This runs in time
+     * linear in the size of the graph, but may remove more dependencies than strictly necessary.
+     */
+    STRONGLY_CONNECTED_COMPONENTS
   }
 
-  private boolean capabilityEqual(Capability c1, Capability c2) {
-    if (c1 == c2) return true;
+  /**
+   * How the bounds of an annotation capability are matched, when deciding whether a processor
+   * provides annotations that another processor requires (i.e. processes or deletes)
+   */
+  public enum BoundsMatching {
+    /** The bounds must be the same class */
+    STRICT,
+    /**
+     * The provided bounds must be the same class as, or a subtype of, the required bounds. For
+     * example, a processor that processes annotations with any {@link io.annot8.api.bounds.Bounds}
+     * depends on a processor that creates annotations with {@code SpanBounds}.
+     */
+    SUBTYPE,
+    /** The provided bounds must be the same class as, or a supertype of, the required bounds */
+    SUPERTYPE
+  }
+
+  public static class Settings implements io.annot8.api.settings.Settings {
+    private CycleBreaking cycleBreaking = CycleBreaking.SIMPLE_CYCLES;
+    private BoundsMatching boundsMatching = BoundsMatching.STRICT;
+    private ProcessorCosts costs = null;
+    private Collection<Capability> requiredCapabilities = null;
+
+    public Settings() {
+      // Default settings
+    }
 
-    if (c1 instanceof ContentCapability) {
-      if (!(c2 instanceof ContentCapability)) return false;
+    public CycleBreaking getCycleBreaking() {
+      return cycleBreaking;
+    }
 
-      return ((ContentCapability) c1).getType().equals(((ContentCapability) c2).getType());
-    } else if (c1 instanceof AnnotationCapability) {
-      if (!(c2 instanceof AnnotationCapability)) return false;
+    public void setCycleBreaking(CycleBreaking cycleBreaking) {
+      this.cycleBreaking = cycleBreaking;
+    }
 
-      AnnotationCapability a1 = (AnnotationCapability) c1;
-      AnnotationCapability a2 = (AnnotationCapability) c2;
+    public BoundsMatching getBoundsMatching() {
+      return boundsMatching;
+    }
 
-      // TODO: Should bounds also match on subtypes?
-      return a1.getBounds().equals(a2.getBounds())
-          && (a1.getType().equals(a2.getType())
-              || a1.getType().equals("*")
-              || a2.getType().equals("*"));
-    } else if (c1 instanceof GroupCapability) {
-      if (!(c2 instanceof GroupCapability)) return false;
+    public void setBoundsMatching(BoundsMatching boundsMatching) {
+      this.boundsMatching = boundsMatching;
+    }
 
-      return ((GroupCapability) c1).getType().equals(((GroupCapability) c2).getType())
-          || ((GroupCapability) c1).getType().equals("*")
-          || ((GroupCapability) c2).getType().equals("*");
+    /**
+     * Estimated costs of the processors. If set, processors are ordered so that the most expensive
+     * chains of dependencies are started first (see {@link DependencyOrderer#schedule(Collection)})
+     */
+    public ProcessorCosts getCosts() {
+      return costs;
     }
 
-    return false;
+    public void setCosts(ProcessorCosts costs) {
+      this.costs = costs;
+    }
+
+    /**
+     * Capabilities that the pipeline must produce. If set, processors that don't contribute to
+     * these capabilities are removed (see {@link
+     * DependencyOrderer#findRedundantProcessors(Collection)})
+     */
+    public Collection<Capability> getRequiredCapabilities() {
+      return requiredCapabilities;
+    }
+
+    public void setRequiredCapabilities(Collection<Capability> requiredCapabilities) {
+      this.requiredCapabilities = requiredCapabilities;
+    }
+
+    @Override
+    public boolean validate() {
+      return cycleBreaking != null && boundsMatching != null;
+    }
   }
 }
@@ -0,0 +1,311 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import io.annot8.api.components.SourceDescriptor;
+import io.annot8.api.pipelines.PipelineOrderer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Orderer that keeps the dependency graph of its processors between calls, so that processors can
+ * be added to or removed from a long running pipeline without re-ordering every processor.
+ *
+ * <p>Dependencies are found using the same rules as {@link DependencyOrderer}. When a processor is
+ * added, only the dependencies to and from that processor are found, and the order is repaired
+ * locally using the dynamic topological sort of Pearce and Kelly, which only moves the processors
+ * that lie between the two ends of a dependency that is out of order.
+ *
+ * <p>A dependency that would create a cycle is ignored (and logged), rather than removed from an
+ * existing cycle as {@link DependencyOrderer} does, so the order may differ from that of {@link
+ * DependencyOrderer} for the same processors. Ignored dependencies are reconsidered whenever a
+ * processor is removed.
+ */
+public class IncrementalDependencyOrderer implements PipelineOrderer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalDependencyOrderer.class);
+
+  private final CapabilityIndex index;
+
+  // Processors are identified by an id, which is reused once the processor has been removed
+  private final Map<ProcessorDescriptor, Integer> idOf = new HashMap<>();
+  private final List<ProcessorDescriptor> processors = new ArrayList<>();
+  private final List<BitSet> dependents = new ArrayList<>();
+  private final List<BitSet> dependencies = new ArrayList<>();
+  private final Deque<Integer> freeIds = new ArrayDeque<>();
+
+  // Dependencies (as source and target ids) that were ignored because they would create a cycle
+  private final Set<Long> ignored = new LinkedHashSet<>();
+
+  // The topological order, as the position of each id and the id at each position. Removing a
+  // processor leaves an empty position (-1), which is reclaimed when the order is compacted.
+  private int[] positionOf = new int[16];
+  private int[] idAt = new int[16];
+  private int positions = 0;
+
+  public IncrementalDependencyOrderer() {
+    this(DependencyOrderer.BoundsMatching.STRICT);
+  }
+
+  public IncrementalDependencyOrderer(DependencyOrderer.BoundsMatching boundsMatching) {
+    this.index = new CapabilityIndex(boundsMatching);
+  }
+
+  /**
+   * Add a processor, and update the order to take account of its dependencies.
+   *
+   * @return false if the processor has already been added
+   */
+  public synchronized boolean add(ProcessorDescriptor processor) {
+    if (idOf.containsKey(processor)) return false;
+
+    int id;
+    if (freeIds.isEmpty()) {
+      id = processors.size();
+      processors.add(processor);
+      dependents.add(new BitSet());
+      dependencies.add(new BitSet());
+    } else {
+      id = freeIds.pop();
+      processors.set(id, processor);
+    }
+
+    // New processors go at the end of the order, so only the processors that depend on it can be
+    // out of order
+    append(id);
+    idOf.put(processor, id);
+    index.add(id, processor.capabilities());
+
+    BitSet before = index.dependenciesOf(id);
+    for (int u = before.nextSetBit(0); u >= 0; u = before.nextSetBit(u + 1)) addDependency(u, id);
+
+    BitSet after = index.dependentsOf(id);
+    for (int v = after.nextSetBit(0); v >= 0; v = after.nextSetBit(v + 1)) addDependency(id, v);
+
+    return true;
+  }
+
+  /**
+   * Remove a processor. The order of the remaining processors is unchanged, unless a dependency
+   * that was previously ignored can now be satisfied.
+   *
+   * @return false if the processor had not been added
+   */
+  public synchronized boolean remove(ProcessorDescriptor processor) {
+    Integer id = idOf.remove(processor);
+    if (id == null) return false;
+
+    index.remove(id);
+
+    BitSet after = dependents.get(id);
+    for (int v = after.nextSetBit(0); v >= 0; v = after.nextSetBit(v + 1)) {
+      dependencies.get(v).clear(id);
+    }
+    BitSet before = dependencies.get(id);
+    for (int u = before.nextSetBit(0); u >= 0; u = before.nextSetBit(u + 1)) {
+      dependents.get(u).clear(id);
+    }
+    after.clear();
+    before.clear();
+
+    idAt[positionOf[id]] = -1;
+    processors.set(id, null);
+    freeIds.push(id);
+
+    // Removing the processor may have broken the cycle that caused a dependency to be ignored
+    if (!ignored.isEmpty()) {
+      List<Long> retry = new ArrayList<>(ignored);
+      ignored.clear();
+
+      for (long edge : retry) {
+        int u = (int) (edge >>> 32);
+        int v = (int) edge;
+        if (u != id && v != id) addDependency(u, v);
+      }
+    }
+
+    return true;
+  }
+
+  public synchronized boolean contains(ProcessorDescriptor processor) {
+    return idOf.containsKey(processor);
+  }
+
+  /** Returns the current processors, in an order such that the dependencies are satisfied */
+  public synchronized List<ProcessorDescriptor> getOrder() {
+    List<ProcessorDescriptor> order = new ArrayList<>(idOf.size());
+    for (int i = 0; i < positions; i++) {
+      if (idAt[i] != -1) order.add(processors.get(idAt[i]));
+    }
+    return order;
+  }
+
+  /**
+   * Update the processors to those supplied, removing any that are no longer present and adding
+   * any that are new, and return them in an order such that the dependencies are satisfied
+   */
+  @Override
+  public synchronized Collection<ProcessorDescriptor> orderProcessors(
+      Collection<ProcessorDescriptor> processors) {
+    Set<ProcessorDescriptor> retained = new HashSet<>(processors);
+    for (ProcessorDescriptor p : getOrder()) {
+      if (!retained.contains(p)) remove(p);
+    }
+
+    processors.forEach(this::add);
+
+    return getOrder();
+  }
+
+  @Override
+  public Collection<SourceDescriptor> orderSources(Collection<SourceDescriptor> sources) {
+    return sources;
+  }
+
+  /** Add a dependency of v on u, moving processors if necessary so that u remains before v */
+  private void addDependency(int u, int v) {
+    if (dependents.get(u).get(v)) return;
+
+    int lower = positionOf[v];
+    int upper = positionOf[u];
+
+    if (lower < upper) {
+      // Find the processors between v and u that must move after u (because they depend on v)...
+      BitSet forward = new BitSet();
+      if (!searchForward(v, u, forward)) {
+        ignored.add(((long) u << 32) | v);
+        LOGGER.info(
+            "Dependency between {} and {} ignored as it would create a cycle",
+            processors.get(u).getName(),
+            processors.get(v).getName());
+        return;
+      }
+
+      // ...and those that must move before v (because u depends on them)
+      BitSet backward = new BitSet();
+      searchBackward(u, lower, backward);
+
+      reorder(backward, forward);
+    }
+
+    dependents.get(u).set(v);
+    dependencies.get(v).set(u);
+  }
+
+  /**
+   * Find the processors that depend (directly or indirectly) on v and are currently before u.
+   *
+   * @return false if u depends on v, in which case a dependency of v on u would create a cycle
+   */
+  private boolean searchForward(int v, int u, BitSet visited) {
+    int upper = positionOf[u];
+
+    Deque<Integer> stack = new ArrayDeque<>();
+    stack.push(v);
+    visited.set(v);
+
+    while (!stack.isEmpty()) {
+      BitSet next = dependents.get(stack.pop());
+      for (int w = next.nextSetBit(0); w >= 0; w = next.nextSetBit(w + 1)) {
+        if (w == u) return false;
+
+        if (positionOf[w] < upper && !visited.get(w)) {
+          visited.set(w);
+          stack.push(w);
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /** Find the processors that u depends (directly or indirectly) on, and are currently after v */
+  private void searchBackward(int u, int lower, BitSet visited) {
+    Deque<Integer> stack = new ArrayDeque<>();
+    stack.push(u);
+    visited.set(u);
+
+    while (!stack.isEmpty()) {
+      BitSet next = dependencies.get(stack.pop());
+      for (int w = next.nextSetBit(0); w >= 0; w = next.nextSetBit(w + 1)) {
+        if (positionOf[w] > lower && !visited.get(w)) {
+          visited.set(w);
+          stack.push(w);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reuse the positions occupied by the two sets of processors, placing all of the backward set
+   * before all of the forward set, but otherwise keeping their relative order
+   */
+  private void reorder(BitSet backward, BitSet forward) {
+    int[] b = backward.stream().map(id -> positionOf[id]).sorted().map(p -> idAt[p]).toArray();
+    int[] f = forward.stream().map(id -> positionOf[id]).sorted().map(p -> idAt[p]).toArray();
+
+    int[] pool = new int[b.length + f.length];
+    for (int i = 0; i < b.length; i++) pool[i] = positionOf[b[i]];
+    for (int i = 0; i < f.length; i++) pool[b.length + i] = positionOf[f[i]];
+    Arrays.sort(pool);
+
+    int i = 0;
+    for (int id : b) place(id, pool[i++]);
+    for (int id : f) place(id, pool[i++]);
+  }
+
+  private void append(int id) {
+    if (positions == idAt.length) {
+      // Reclaim empty positions if at least half are empty, otherwise make more room
+      if (idOf.size() <= positions / 2) {
+        compact();
+      } else {
+        idAt = Arrays.copyOf(idAt, idAt.length * 2);
+      }
+    }
+
+    if (id >= positionOf.length) positionOf = Arrays.copyOf(positionOf, positionOf.length * 2);
+
+    place(id, positions++);
+  }
+
+  private void compact() {
+    int next = 0;
+    for (int i = 0; i < positions; i++) {
+      if (idAt[i] != -1) place(idAt[i], next++);
+    }
+    Arrays.fill(idAt, next, positions, -1);
+
+    positions = next;
+  }
+
+  private void place(int id, int position) {
+    positionOf[id] = position;
+    idAt[position] = id;
+  }
+}
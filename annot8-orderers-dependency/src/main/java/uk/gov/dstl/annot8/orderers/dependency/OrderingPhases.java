@@ -0,0 +1,68 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The phases of ordering processors with a {@link DependencyOrderer}, run one at a time on the
+ * dependency graph of the processors so that each phase can be measured on its own (for instance
+ * by benchmarks). Pipelines should use the {@link DependencyOrderer} itself.
+ *
+ * <p>Processors are referred to by their position in the collection the graph was built from,
+ * ignoring any repeats of a processor. Breaking cycles modifies the graph, so this class is not
+ * thread safe.
+ */
+public final class OrderingPhases {
+  private final DependencyOrderer orderer;
+  private final DependencyGraph graph;
+
+  private OrderingPhases(DependencyOrderer orderer, DependencyGraph graph) {
+    this.orderer = orderer;
+    this.graph = graph;
+  }
+
+  /**
+   * Build the dependency graph of the processors, with the bounds matching of the orderer's
+   * settings. Redundant processors are not removed.
+   */
+  public static OrderingPhases buildGraph(
+      DependencyOrderer orderer, Collection<ProcessorDescriptor> processors) {
+    return new OrderingPhases(orderer, orderer.buildGraph(processors));
+  }
+
+  /** The number of processors in the graph */
+  public int size() {
+    return graph.size();
+  }
+
+  /** Remove dependencies from the graph, as the orderer's settings configure, until it's acyclic */
+  public void breakCycles() {
+    orderer.breakCycles(graph);
+  }
+
+  /** The processors in an order that satisfies their dependencies, omitting any in a cycle */
+  public int[] topologicalOrder() {
+    return graph.topologicalOrder();
+  }
+
+  /** The strongly connected components of the graph, each of which is a cycle if larger than one */
+  public List<int[]> stronglyConnectedComponents() {
+    return graph.stronglyConnectedComponents();
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counterpart to {@link io.annot8.api.pipelines.PipelineOrderer} that groups processors into
+ * stages rather than returning a single linear order.
+ *
+ * <p>Processors within a stage have no dependencies on each other, and so may be run on the same
+ * item at the same time. Every processor in a stage must have finished before the next stage is
+ * started.
+ */
+public interface PipelineStagePlanner {
+
+  /**
+   * Group the processors into stages, returned in the order in which they should be run. Every
+   * processor appears in exactly one stage.
+   */
+  List<List<ProcessorDescriptor>> planStages(Collection<ProcessorDescriptor> processors);
+}
@@ -0,0 +1,111 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimated cost (e.g. the mean time taken to process an item) of each processor in a pipeline,
+ * keyed by processor name. Processors without an estimate are assumed to have the default cost.
+ *
+ * <p>Costs may be declared directly, or loaded from a profiling file using {@link #load(Path)}.
+ */
+public class ProcessorCosts {
+  public static final double DEFAULT_COST = 1.0;
+
+  private final Map<String, Double> costs;
+  private final double defaultCost;
+
+  public ProcessorCosts() {
+    this(Collections.emptyMap());
+  }
+
+  public ProcessorCosts(Map<String, Double> costs) {
+    this(costs, DEFAULT_COST);
+  }
+
+  public ProcessorCosts(Map<String, Double> costs, double defaultCost) {
+    costs.forEach((name, cost) -> checkCost(cost, name));
+    checkCost(defaultCost, "default");
+
+    this.costs = Map.copyOf(costs);
+    this.defaultCost = defaultCost;
+  }
+
+  /**
+   * Load costs from a profiling file.
+   *
+   * <p>Each line of the file should be of the form {@code name=cost}, where name is the name of the
+   * processor and cost is a non-negative number. As processor names may themselves contain an
+   * {@code =}, the line is split on the last one. Blank lines, and lines starting with {@code #},
+   * are ignored.
+   */
+  public static ProcessorCosts load(Path path) throws IOException {
+    Map<String, Double> costs = new HashMap<>();
+
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+
+        line = line.strip();
+        if (line.isEmpty() || line.startsWith("#")) continue;
+
+        int idx = line.lastIndexOf('=');
+        if (idx <= 0)
+          throw new IllegalArgumentException(
+              "Line " + lineNumber + " of " + path + " is not of the form name=cost");
+
+        try {
+          costs.put(
+              line.substring(0, idx).strip(), Double.parseDouble(line.substring(idx + 1).strip()));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(
+              "Line " + lineNumber + " of " + path + " does not have a valid cost", e);
+        }
+      }
+    }
+
+    return new ProcessorCosts(costs);
+  }
+
+  /** Returns the estimated cost of the processor, or the default cost if there is no estimate */
+  public double getCost(ProcessorDescriptor processor) {
+    String name = processor.getName();
+    if (name == null) return defaultCost;
+
+    return costs.getOrDefault(name, defaultCost);
+  }
+
+  public double getDefaultCost() {
+    return defaultCost;
+  }
+
+  private static void checkCost(double cost, String name) {
+    if (cost < 0.0 || Double.isNaN(cost) || Double.isInfinite(cost))
+      throw new IllegalArgumentException(
+          "Cost of " + name + " must be a finite, non-negative number");
+  }
+}
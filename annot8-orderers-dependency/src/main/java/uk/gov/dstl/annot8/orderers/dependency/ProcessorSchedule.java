@@ -0,0 +1,67 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.List;
+
+/**
+ * The result of ordering processors using their estimated costs, as returned by {@link
+ * DependencyOrderer#schedule(java.util.Collection)}.
+ */
+public class ProcessorSchedule {
+  private final List<ProcessorDescriptor> order;
+  private final List<ProcessorDescriptor> criticalPath;
+  private final double makespan;
+  private final double totalCost;
+
+  public ProcessorSchedule(
+      List<ProcessorDescriptor> order,
+      List<ProcessorDescriptor> criticalPath,
+      double makespan,
+      double totalCost) {
+    this.order = List.copyOf(order);
+    this.criticalPath = List.copyOf(criticalPath);
+    this.makespan = makespan;
+    this.totalCost = totalCost;
+  }
+
+  /**
+   * The processors in an order that satisfies their dependencies, with processors on the most
+   * expensive remaining chain of dependencies placed first
+   */
+  public List<ProcessorDescriptor> getOrder() {
+    return order;
+  }
+
+  /** The most expensive chain of dependent processors, in the order they must be run */
+  public List<ProcessorDescriptor> getCriticalPath() {
+    return criticalPath;
+  }
+
+  /**
+   * The expected time to process an item if every processor is started as soon as the processors
+   * it depends on have finished, i.e. the total cost of the critical path
+   */
+  public double getMakespan() {
+    return makespan;
+  }
+
+  /** The expected time to process an item if the processors are run one after another */
+  public double getTotalCost() {
+    return totalCost;
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.annot8.api.bounds.Bounds;
+import io.annot8.api.capabilities.AnnotationCapability;
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.GroupCapability;
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CachingDependencyOrdererTest {
+  private int processorName = 1;
+
+  private static final Bounds mockBounds = mock(Bounds.class);
+
+  @Test
+  public void testHit() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Bar"));
+
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer();
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+    assertEquals(0, orderer.getHits());
+    assertEquals(1, orderer.getMisses());
+
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+    assertEquals(1, orderer.getHits());
+    assertEquals(1, orderer.getMisses());
+
+    // Order supplied shouldn't affect the fingerprint
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd2, pd1, pd3)));
+    assertEquals(2, orderer.getHits());
+    assertEquals(1, orderer.size());
+  }
+
+  @Test
+  public void testHitDifferentDescriptors() {
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer();
+
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(Collections.emptyList(), List.of("Foo"));
+    assertEquals(List.of(pd1, pd2), orderer.orderProcessors(List.of(pd2, pd1)));
+
+    // Reloaded pipeline, with new descriptors (and capability instances) but the same capabilities
+    ProcessorDescriptor reloaded1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor reloaded2 = processor(Collections.emptyList(), List.of("Foo"));
+    assertEquals(
+        List.of(reloaded1, reloaded2), orderer.orderProcessors(List.of(reloaded2, reloaded1)));
+
+    assertEquals(1, orderer.getHits());
+    assertEquals(1, orderer.getMisses());
+  }
+
+  @Test
+  public void testHitIdenticalCapabilities() {
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer();
+
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(Collections.emptyList(), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Foo"));
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd2, pd3, pd1)));
+
+    // Processors with the same capabilities are returned in the order they were supplied
+    assertEquals(List.of(pd1, pd3, pd2), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+    assertEquals(1, orderer.getHits());
+  }
+
+  @Test
+  public void testMiss() {
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer();
+
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(Collections.emptyList(), List.of("Foo"));
+    orderer.orderProcessors(List.of(pd2, pd1));
+
+    // Group type differs
+    ProcessorDescriptor pd3 = processor(List.of("Bar"), Collections.emptyList());
+    assertEquals(List.of(pd2, pd3), orderer.orderProcessors(List.of(pd2, pd3)));
+
+    // Created rather than processed
+    ProcessorDescriptor pd4 = processor(List.of("Foo"), Collections.emptyList());
+    assertEquals(List.of(pd1, pd4), orderer.orderProcessors(List.of(pd1, pd4)));
+
+    // Annotation rather than group
+    ProcessorDescriptor pd5 =
+        annotationProcessor(Collections.emptyList(), List.of("Foo"), Collections.emptyList());
+    assertEquals(List.of(pd5, pd1), orderer.orderProcessors(List.of(pd5, pd1)));
+
+    assertEquals(0, orderer.getHits());
+    assertEquals(4, orderer.getMisses());
+    assertEquals(4, orderer.size());
+  }
+
+  @Test
+  public void testMissDifferentCosts() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(Collections.emptyList(), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(List.of("Bar"), Collections.emptyList());
+
+    CachingDependencyOrderer.Settings settings = new CachingDependencyOrderer.Settings();
+    settings.setCosts(new ProcessorCosts(Map.of("Processor 1", 5.0, "Processor 3", 1.0)));
+
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer(settings);
+    assertEquals(List.of(pd1, pd3, pd2), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+
+    // Same capabilities, but none of the processors are more expensive than the others
+    ProcessorDescriptor pd4 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd5 = processor(Collections.emptyList(), List.of("Foo"));
+    ProcessorDescriptor pd6 = processor(List.of("Bar"), Collections.emptyList());
+    assertEquals(List.of(pd4, pd6, pd5), orderer.orderProcessors(List.of(pd6, pd5, pd4)));
+
+    assertEquals(0, orderer.getHits());
+    assertEquals(2, orderer.getMisses());
+  }
+
+  @Test
+  public void testCostsChanged() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(Collections.emptyList(), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(List.of("Bar"), Collections.emptyList());
+
+    CachingDependencyOrderer.Settings settings = new CachingDependencyOrderer.Settings();
+    settings.setCosts(new ProcessorCosts(Map.of("Processor 1", 5.0, "Processor 3", 1.0)));
+
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer(settings);
+    assertEquals(List.of(pd1, pd3, pd2), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+
+    // Costs changed after the orderer was created are used, as they are by DependencyOrderer
+    settings.setCosts(new ProcessorCosts(Map.of("Processor 1", 1.0, "Processor 3", 5.0)));
+    assertEquals(List.of(pd3, pd1, pd2), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+
+    assertEquals(0, orderer.getHits());
+    assertEquals(2, orderer.getMisses());
+  }
+
+  @Test
+  public void testSettingsChanged() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(Collections.emptyList(), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(List.of("Bar"), Collections.emptyList());
+
+    CachingDependencyOrderer.Settings settings = new CachingDependencyOrderer.Settings();
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer(settings);
+    assertEquals(List.of(pd1, pd3, pd2), orderer.orderProcessors(List.of(pd1, pd2, pd3)));
+
+    // Nothing requires Bar, so pd3 is now redundant
+    settings.setRequiredCapabilities(groups(List.of("Foo")));
+    assertEquals(List.of(pd1, pd2), orderer.orderProcessors(List.of(pd1, pd2, pd3)));
+    assertEquals(List.of(pd1, pd2), orderer.orderProcessors(List.of(pd1, pd2, pd3)));
+
+    settings.setRequiredCapabilities(null);
+    settings.setBoundsMatching(DependencyOrderer.BoundsMatching.SUBTYPE);
+    assertEquals(List.of(pd1, pd3, pd2), orderer.orderProcessors(List.of(pd1, pd2, pd3)));
+
+    assertEquals(1, orderer.getHits());
+    assertEquals(3, orderer.getMisses());
+    assertEquals(3, orderer.size());
+  }
+
+  @Test
+  public void testEviction() {
+    CachingDependencyOrderer.Settings settings = new CachingDependencyOrderer.Settings();
+    settings.setMaxSize(2);
+
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer(settings);
+
+    List<ProcessorDescriptor> a = List.of(processor(List.of("A"), Collections.emptyList()));
+    List<ProcessorDescriptor> b = List.of(processor(List.of("B"), Collections.emptyList()));
+    List<ProcessorDescriptor> c = List.of(processor(List.of("C"), Collections.emptyList()));
+
+    orderer.orderProcessors(a);
+    orderer.orderProcessors(b);
+    orderer.orderProcessors(a);
+
+    // B is now the least recently used, so is evicted
+    orderer.orderProcessors(c);
+    assertEquals(2, orderer.size());
+    assertEquals(1, orderer.getHits());
+    assertEquals(3, orderer.getMisses());
+
+    orderer.orderProcessors(a);
+    assertEquals(2, orderer.getHits());
+
+    orderer.orderProcessors(b);
+    assertEquals(4, orderer.getMisses());
+
+    orderer.clear();
+    assertEquals(0, orderer.size());
+  }
+
+  @Test
+  public void testStages() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Foo"));
+
+    CachingDependencyOrderer orderer = new CachingDependencyOrderer();
+    List<List<ProcessorDescriptor>> expected = List.of(List.of(pd1), List.of(pd2, pd3));
+
+    assertEquals(expected, orderer.planStages(List.of(pd1, pd2, pd3)));
+
+    // Cached stages keep the order of the processors the stages were first planned from
+    assertEquals(expected, orderer.planStages(List.of(pd3, pd1, pd2)));
+    assertEquals(1, orderer.getHits());
+
+    // Stages and orders are cached separately
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd1, pd2, pd3)));
+    assertEquals(1, orderer.getHits());
+    assertEquals(2, orderer.getMisses());
+    assertEquals(1, orderer.size());
+  }
+
+  @Test
+  public void testSettings() {
+    CachingDependencyOrderer.Settings settings = new CachingDependencyOrderer.Settings();
+    assertTrue(settings.validate());
+
+    settings.setMaxSize(0);
+    assertFalse(settings.validate());
+  }
+
+  private ProcessorDescriptor processor(Collection<String> creates, Collection<String> processes) {
+    return descriptor(
+        capabilities(groups(creates), groups(processes), Collections.emptyList()),
+        "Processor " + processorName++);
+  }
+
+  private ProcessorDescriptor annotationProcessor(
+      Collection<String> creates, Collection<String> processes, Collection<String> deletes) {
+    return descriptor(
+        capabilities(annotations(creates), annotations(processes), annotations(deletes)),
+        "Processor " + processorName++);
+  }
+
+  private static List<Capability> groups(Collection<String> types) {
+    List<Capability> l = new ArrayList<>();
+    for (String s : types) {
+      GroupCapability gc = mock(GroupCapability.class);
+      when(gc.getType()).thenAnswer(i -> s);
+      l.add(gc);
+    }
+    return l;
+  }
+
+  private static List<Capability> annotations(Collection<String> types) {
+    List<Capability> l = new ArrayList<>();
+    for (String s : types) {
+      AnnotationCapability ac = mock(AnnotationCapability.class);
+      when(ac.getType()).thenAnswer(i -> s);
+      when(ac.getBounds()).thenAnswer(i -> mockBounds.getClass());
+      l.add(ac);
+    }
+    return l;
+  }
+
+  private static Capabilities capabilities(
+      List<Capability> creates, List<Capability> processes, List<Capability> deletes) {
+    Capabilities c = mock(Capabilities.class);
+    when(c.creates()).thenAnswer(i -> creates.stream());
+    when(c.processes()).thenAnswer(i -> processes.stream());
+    when(c.deletes()).thenAnswer(i -> deletes.stream());
+    return c;
+  }
+
+  private static ProcessorDescriptor descriptor(Capabilities c, String name) {
+    ProcessorDescriptor pd = mock(ProcessorDescriptor.class);
+    when(pd.capabilities()).thenReturn(c);
+    when(pd.getName()).thenReturn(name);
+    when(pd.toString()).thenReturn(name);
+    return pd;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.annot8.api.bounds.Bounds;
+import io.annot8.api.capabilities.AnnotationCapability;
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.ContentCapability;
+import io.annot8.api.capabilities.GroupCapability;
+import io.annot8.api.data.Content;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import uk.gov.dstl.annot8.orderers.dependency.DependencyOrderer.BoundsMatching;
+
+public class CapabilityIndexTest {
+
+  private static final List<String> TYPES = List.of("Foo", "Bar", "Baz", "*");
+  private static final List<Class<? extends Bounds>> BOUNDS =
+      List.of(Bounds.class, BoundsA.class, BoundsB.class, BoundsC.class);
+
+  @Test
+  public void testMatchesPairwiseComparison() {
+    for (BoundsMatching boundsMatching : BoundsMatching.values()) {
+      testMatchesPairwiseComparison(boundsMatching);
+    }
+  }
+
+  private void testMatchesPairwiseComparison(BoundsMatching boundsMatching) {
+    Random r = new Random(1234L);
+
+    List<Capabilities> capabilities = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      capabilities.add(randomCapabilities(r));
+    }
+
+    CapabilityIndex index = new CapabilityIndex(boundsMatching);
+    for (int i = 0; i < capabilities.size(); i++) {
+      index.add(i, capabilities.get(i));
+    }
+
+    for (int i = 0; i < capabilities.size(); i++) {
+      BitSet expectedDependents = new BitSet();
+      BitSet expectedDependencies = new BitSet();
+
+      for (int j = 0; j < capabilities.size(); j++) {
+        if (i == j) continue;
+
+        if (dependsOn(capabilities.get(j), capabilities.get(i), boundsMatching)) {
+          expectedDependents.set(j);
+        }
+        if (dependsOn(capabilities.get(i), capabilities.get(j), boundsMatching)) {
+          expectedDependencies.set(j);
+        }
+      }
+
+      assertEquals(expectedDependents, index.dependentsOf(i));
+      assertEquals(expectedDependencies, index.dependenciesOf(i));
+    }
+  }
+
+  @Test
+  public void testBoundsMatch() {
+    assertTrue(CapabilityIndex.boundsMatch(BoundsA.class, BoundsA.class, BoundsMatching.STRICT));
+    assertFalse(CapabilityIndex.boundsMatch(BoundsA.class, BoundsC.class, BoundsMatching.STRICT));
+
+    assertTrue(CapabilityIndex.boundsMatch(BoundsA.class, BoundsC.class, BoundsMatching.SUBTYPE));
+    assertTrue(CapabilityIndex.boundsMatch(Bounds.class, BoundsC.class, BoundsMatching.SUBTYPE));
+    assertFalse(CapabilityIndex.boundsMatch(BoundsC.class, BoundsA.class, BoundsMatching.SUBTYPE));
+    assertFalse(CapabilityIndex.boundsMatch(BoundsB.class, BoundsC.class, BoundsMatching.SUBTYPE));
+
+    assertTrue(CapabilityIndex.boundsMatch(BoundsC.class, BoundsA.class, BoundsMatching.SUPERTYPE));
+    assertFalse(
+        CapabilityIndex.boundsMatch(BoundsA.class, BoundsC.class, BoundsMatching.SUPERTYPE));
+  }
+
+  @Test
+  public void testCreatorsOfSubtype() {
+    Capabilities creator =
+        capabilities(List.of(annotation("Foo", BoundsC.class)), List.of(), List.of());
+
+    CapabilityIndex strict = new CapabilityIndex();
+    strict.add(0, creator);
+    assertTrue(strict.creatorsOf(annotation("Foo", BoundsA.class)).isEmpty());
+
+    CapabilityIndex subtype = new CapabilityIndex(BoundsMatching.SUBTYPE);
+    subtype.add(0, creator);
+    assertEquals(
+        BitSet.valueOf(new long[] {0b1}), subtype.creatorsOf(annotation("*", Bounds.class)));
+    assertEquals(
+        BitSet.valueOf(new long[] {0b1}), subtype.creatorsOf(annotation("Foo", BoundsA.class)));
+    assertTrue(subtype.creatorsOf(annotation("Foo", BoundsB.class)).isEmpty());
+  }
+
+  @Test
+  public void testRemove() {
+    Capabilities creator = capabilities(List.of(group("Foo")), List.of(), List.of());
+    Capabilities processor = capabilities(List.of(), List.of(group("*")), List.of());
+
+    CapabilityIndex index = new CapabilityIndex();
+    index.add(0, creator);
+    index.add(1, processor);
+
+    assertEquals(BitSet.valueOf(new long[] {0b10}), index.dependentsOf(0));
+
+    index.remove(1);
+    assertTrue(index.dependentsOf(0).isEmpty());
+    assertTrue(index.dependenciesOf(1).isEmpty());
+  }
+
+  private static boolean dependsOn(Capabilities c2, Capabilities c1, BoundsMatching bm) {
+    return c2.processes().anyMatch(cp -> anyMatch(cp, c1.creates(), bm))
+        || c2.deletes().anyMatch(cd -> anyMatch(cd, c1.creates(), bm))
+        || c2.deletes().anyMatch(cd -> anyMatch(cd, c1.processes(), bm));
+  }
+
+  private static boolean anyMatch(Capability c, Stream<Capability> others, BoundsMatching bm) {
+    return others.anyMatch(o -> CapabilityIndex.matches(c, o, bm));
+  }
+
+  private static Capabilities randomCapabilities(Random r) {
+    return capabilities(randomList(r), randomList(r), randomList(r));
+  }
+
+  private static List<Capability> randomList(Random r) {
+    List<Capability> l = new ArrayList<>();
+    int n = r.nextInt(3);
+    for (int i = 0; i < n; i++) {
+      String type = TYPES.get(r.nextInt(TYPES.size()));
+      switch (r.nextInt(3)) {
+        case 0:
+          l.add(content(r.nextBoolean() ? StringContent.class : IntegerContent.class));
+          break;
+        case 1:
+          l.add(annotation(type, BOUNDS.get(r.nextInt(BOUNDS.size()))));
+          break;
+        default:
+          l.add(group(type));
+      }
+    }
+    return l;
+  }
+
+  private static Capabilities capabilities(
+      List<Capability> creates, List<Capability> processes, List<Capability> deletes) {
+    Capabilities c = mock(Capabilities.class);
+    when(c.creates()).thenAnswer(i -> creates.stream());
+    when(c.processes()).thenAnswer(i -> processes.stream());
+    when(c.deletes()).thenAnswer(i -> deletes.stream());
+    return c;
+  }
+
+  private static Capability content(Class<? extends Content<?>> type) {
+    ContentCapability cc = mock(ContentCapability.class);
+    when(cc.getType()).thenAnswer(i -> type);
+    return cc;
+  }
+
+  private static Capability annotation(String type, Class<? extends Bounds> bounds) {
+    AnnotationCapability ac = mock(AnnotationCapability.class);
+    when(ac.getType()).thenAnswer(i -> type);
+    when(ac.getBounds()).thenAnswer(i -> bounds);
+    return ac;
+  }
+
+  private static Capability group(String type) {
+    GroupCapability gc = mock(GroupCapability.class);
+    when(gc.getType()).thenAnswer(i -> type);
+    return gc;
+  }
+
+  private interface StringContent extends Content<String> {}
+
+  private interface IntegerContent extends Content<Integer> {}
+
+  private interface BoundsA extends Bounds {}
+
+  private interface BoundsB extends Bounds {}
+
+  private interface BoundsC extends BoundsA {}
+}
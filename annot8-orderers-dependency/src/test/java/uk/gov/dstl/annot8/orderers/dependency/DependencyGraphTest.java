@@ -0,0 +1,169 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.GroupCapability;
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.jgrapht.Graph;
+import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.traverse.TopologicalOrderIterator;
+import org.junit.jupiter.api.Test;
+
+public class DependencyGraphTest {
+
+  @Test
+  public void testBuild() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), List.of());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(List.of(), List.of("Foo", "Bar"));
+
+    DependencyGraph g = DependencyGraph.build(List.of(pd3, pd2, pd1, pd2));
+    assertEquals(3, g.size());
+    assertEquals(pd3, g.get(0));
+    assertEquals(pd2, g.get(1));
+    assertEquals(pd1, g.get(2));
+
+    assertEquals(Set.of(0, 1), toSet(g.dependentsOf(2)));
+    assertEquals(Set.of(1, 2), toSet(g.dependenciesOf(0)));
+
+    g.removeEdge(2, 0);
+    assertEquals(Set.of(1), toSet(g.dependentsOf(2)));
+    assertEquals(Set.of(1), toSet(g.dependenciesOf(0)));
+
+    Graph<ProcessorDescriptor, DefaultEdge> jg = g.toGraph();
+    assertEquals(3, jg.vertexSet().size());
+    assertTrue(jg.containsEdge(pd1, pd2));
+    assertTrue(jg.containsEdge(pd2, pd3));
+    assertFalse(jg.containsEdge(pd1, pd3));
+  }
+
+  @Test
+  public void testTopologicalOrderMatchesJGraphT() {
+    Random r = new Random(1234L);
+
+    // Processor i creates type i and processes some types less than i, so there are no cycles
+    for (int run = 0; run < 20; run++) {
+      int n = 50;
+      List<ProcessorDescriptor> processors = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        List<String> processes = new ArrayList<>();
+        for (int j = 0; j < 3 && i > 0; j++) processes.add("T" + r.nextInt(i));
+
+        processors.add(processor(List.of("T" + i), processes));
+      }
+      Collections.shuffle(processors, r);
+
+      DependencyGraph g = DependencyGraph.build(processors);
+
+      List<ProcessorDescriptor> expected = new ArrayList<>();
+      new TopologicalOrderIterator<>(g.toGraph()).forEachRemaining(expected::add);
+
+      List<ProcessorDescriptor> actual =
+          Arrays.stream(g.topologicalOrder()).mapToObj(g::get).collect(Collectors.toList());
+
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testTopologicalOrderCycle() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), List.of());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo", "Baz"));
+    ProcessorDescriptor pd3 = processor(List.of("Baz"), List.of("Bar"));
+
+    DependencyGraph g = DependencyGraph.build(List.of(pd1, pd2, pd3));
+    assertEquals(1, g.topologicalOrder().length);
+  }
+
+  @Test
+  public void testComponentsMatchJGraphT() {
+    Random r = new Random(1234L);
+
+    for (int run = 0; run < 20; run++) {
+      int n = 50;
+      List<ProcessorDescriptor> processors = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        processors.add(
+            processor(
+                List.of("T" + r.nextInt(n)),
+                r.nextBoolean() ? List.of("T" + r.nextInt(n)) : List.of()));
+      }
+
+      DependencyGraph g = DependencyGraph.build(processors);
+
+      Set<Set<ProcessorDescriptor>> expected =
+          new HashSet<>(
+              new KosarajuStrongConnectivityInspector<>(g.toGraph()).stronglyConnectedSets());
+
+      Set<Set<ProcessorDescriptor>> actual = new HashSet<>();
+      for (int[] component : g.stronglyConnectedComponents()) {
+        for (int i = 1; i < component.length; i++) assertTrue(component[i - 1] < component[i]);
+
+        actual.add(Arrays.stream(component).mapToObj(g::get).collect(Collectors.toSet()));
+      }
+
+      assertEquals(expected, actual);
+    }
+  }
+
+  private static Set<Integer> toSet(BitSet bs) {
+    return bs.stream().boxed().collect(Collectors.toSet());
+  }
+
+  private static ProcessorDescriptor processor(
+      Collection<String> creates, Collection<String> processes) {
+    List<Capability> lc = groups(creates);
+    List<Capability> lp = groups(processes);
+
+    Capabilities c = mock(Capabilities.class);
+    when(c.creates()).thenAnswer(i -> lc.stream());
+    when(c.processes()).thenAnswer(i -> lp.stream());
+    when(c.deletes()).thenAnswer(i -> new ArrayList<Capability>().stream());
+
+    ProcessorDescriptor pd = mock(ProcessorDescriptor.class);
+    when(pd.capabilities()).thenReturn(c);
+    return pd;
+  }
+
+  private static List<Capability> groups(Collection<String> types) {
+    List<Capability> l = new ArrayList<>();
+    for (String s : types) {
+      GroupCapability gc = mock(GroupCapability.class);
+      when(gc.getType()).thenAnswer(i -> s);
+      l.add(gc);
+    }
+    return l;
+  }
+}
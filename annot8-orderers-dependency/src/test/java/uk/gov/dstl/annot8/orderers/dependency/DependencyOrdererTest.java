@@ -16,6 +16,9 @@
 package uk.gov.dstl.annot8.orderers.dependency;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -26,10 +29,14 @@ import io.annot8.api.capabilities.Capability;
 import io.annot8.api.capabilities.ContentCapability;
 import io.annot8.api.components.ProcessorDescriptor;
 import io.annot8.api.data.Content;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -181,6 +188,251 @@ public class DependencyOrdererTest {
     assertEquals(List.of(pd1, pd2, pd3, pd4), orderer.orderProcessors(List.of(pd2, pd1, pd4, pd3)));
   }
 
+  @Test
+  public void testComponentsCycleTwoProcessors() {
+    Content<?> c1 = mock(Content.class);
+
+    ProcessorDescriptor pd1 = contentProcessor(List.of(c1), List.of(c1), Collections.emptyList());
+    ProcessorDescriptor pd2 = contentProcessor(List.of(c1), List.of(c1), Collections.emptyList());
+
+    DependencyOrderer orderer = new DependencyOrderer(componentsSettings());
+
+    // Order isn't defined, either could come first so just check that both are returned
+    assertEquals(2, orderer.orderProcessors(List.of(pd1, pd2)).size());
+  }
+
+  @Test
+  public void testComponentsTwoCyclesTwoContent() {
+    StringContent c1 = mock(StringContent.class);
+    IntegerContent c2 = mock(IntegerContent.class);
+
+    ProcessorDescriptor pd1 = contentProcessor(List.of(c1, c2), List.of(), List.of());
+    ProcessorDescriptor pd2 = contentProcessor(List.of(c2), List.of(c1), List.of());
+    ProcessorDescriptor pd3 = contentProcessor(List.of(c1), List.of(c2), List.of());
+    ProcessorDescriptor pd4 = contentProcessor(List.of(), List.of(c2), List.of());
+    ProcessorDescriptor pd5 = contentProcessor(List.of(c1), List.of(), List.of(c2));
+
+    DependencyOrderer orderer = new DependencyOrderer(componentsSettings());
+    List<ProcessorDescriptor> ordered =
+        new ArrayList<>(orderer.orderProcessors(List.of(pd1, pd2, pd3, pd4, pd5)));
+
+    assertEquals(5, ordered.size());
+
+    // PD1 isn't part of any cycle, so its dependencies must still be respected
+    assertEquals(pd1, ordered.get(0));
+  }
+
+  @Test
+  public void testComponentsWildcardsAndNamed() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(
+            List.of("Foo", "Bar"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd2 =
+        annotationProcessor(List.of("Foo"), List.of("Bar"), Collections.emptyList());
+    ProcessorDescriptor pd3 =
+        annotationProcessor(List.of("Baz"), List.of("*"), Collections.emptyList());
+    ProcessorDescriptor pd4 =
+        annotationProcessor(Collections.emptyList(), Collections.emptyList(), List.of("Baz"));
+
+    DependencyOrderer orderer = new DependencyOrderer(componentsSettings());
+    assertEquals(List.of(pd1, pd2, pd3, pd4), orderer.orderProcessors(List.of(pd2, pd1, pd4, pd3)));
+  }
+
+  @Test
+  public void testComponentsDenseWildcardCycles() {
+    // Every processor depends on every other processor, which has too many simple cycles to
+    // enumerate but should be quick to break using strongly connected components
+    List<ProcessorDescriptor> processors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      processors.add(
+          annotationProcessor(List.of("Foo" + i), List.of("*"), Collections.emptyList()));
+    }
+
+    DependencyOrderer orderer = new DependencyOrderer(componentsSettings());
+    Collection<ProcessorDescriptor> ordered =
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10), () -> orderer.orderProcessors(processors));
+
+    assertEquals(100, ordered.size());
+    assertEquals(Set.copyOf(processors), Set.copyOf(ordered));
+  }
+
+  @Test
+  public void testStagesDiamond() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(List.of("Foo"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd2 =
+        annotationProcessor(List.of("Bar"), List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd3 =
+        annotationProcessor(List.of("Baz"), List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd4 =
+        annotationProcessor(
+            Collections.emptyList(), List.of("Bar", "Baz"), Collections.emptyList());
+    ProcessorDescriptor pd5 =
+        annotationProcessor(List.of("Qux"), Collections.emptyList(), Collections.emptyList());
+
+    DependencyOrderer orderer = new DependencyOrderer();
+    assertEquals(
+        List.of(List.of(pd1, pd5), List.of(pd3, pd2), List.of(pd4)),
+        orderer.planStages(List.of(pd4, pd3, pd2, pd1, pd5)));
+  }
+
+  @Test
+  public void testStagesIndependent() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(List.of("Foo"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd2 =
+        annotationProcessor(List.of("Bar"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd3 =
+        annotationProcessor(List.of("Baz"), Collections.emptyList(), Collections.emptyList());
+
+    DependencyOrderer orderer = new DependencyOrderer();
+    assertEquals(List.of(List.of(pd1, pd2, pd3)), orderer.planStages(List.of(pd1, pd2, pd3)));
+  }
+
+  @Test
+  public void testStagesEmpty() {
+    DependencyOrderer orderer = new DependencyOrderer();
+    assertEquals(Collections.emptyList(), orderer.planStages(Collections.emptyList()));
+  }
+
+  @Test
+  public void testScheduleCriticalPathFirst() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(List.of("Foo"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd2 =
+        annotationProcessor(List.of("Bar"), List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd3 =
+        annotationProcessor(Collections.emptyList(), List.of("Bar"), Collections.emptyList());
+    ProcessorDescriptor pd4 =
+        annotationProcessor(List.of("Baz"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd5 =
+        annotationProcessor(Collections.emptyList(), List.of("Baz"), Collections.emptyList());
+
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setCosts(
+        new ProcessorCosts(Map.of(pd1.getName(), 1.0, pd2.getName(), 10.0, pd3.getName(), 10.0)));
+
+    DependencyOrderer orderer = new DependencyOrderer(settings);
+    List<ProcessorDescriptor> input = List.of(pd4, pd5, pd1, pd2, pd3);
+
+    // Without costs, the first processor supplied would be run first
+    assertEquals(
+        List.of(pd4, pd1, pd5, pd2, pd3), new DependencyOrderer().orderProcessors(input));
+
+    assertEquals(List.of(pd1, pd2, pd3, pd4, pd5), orderer.orderProcessors(input));
+
+    ProcessorSchedule schedule = orderer.schedule(input);
+    assertEquals(List.of(pd1, pd2, pd3, pd4, pd5), schedule.getOrder());
+    assertEquals(List.of(pd1, pd2, pd3), schedule.getCriticalPath());
+    assertEquals(21.0, schedule.getMakespan(), 0.0001);
+    assertEquals(23.0, schedule.getTotalCost(), 0.0001);
+
+    assertEquals(
+        List.of(List.of(pd1, pd4), List.of(pd2, pd5), List.of(pd3)), orderer.planStages(input));
+  }
+
+  @Test
+  public void testScheduleEmpty() {
+    ProcessorSchedule schedule = new DependencyOrderer().schedule(Collections.emptyList());
+
+    assertTrue(schedule.getOrder().isEmpty());
+    assertTrue(schedule.getCriticalPath().isEmpty());
+    assertEquals(0.0, schedule.getMakespan(), 0.0001);
+  }
+
+  @Test
+  public void testPruning() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(List.of("Foo"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd2 =
+        annotationProcessor(List.of("Bar"), List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd3 =
+        annotationProcessor(List.of("Baz"), List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd4 =
+        annotationProcessor(List.of("Qux"), List.of("Baz"), Collections.emptyList());
+    ProcessorDescriptor pd5 =
+        annotationProcessor(Collections.emptyList(), List.of("Bar"), Collections.emptyList());
+    ProcessorDescriptor pd6 =
+        annotationProcessor(List.of("Weapon"), Collections.emptyList(), Collections.emptyList());
+
+    AnnotationCapability weapon = mock(AnnotationCapability.class);
+    when(weapon.getType()).thenAnswer(i -> "Weapon");
+    when(weapon.getBounds()).thenAnswer(i -> mockBounds.getClass());
+
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setRequiredCapabilities(List.of(weapon));
+
+    DependencyOrderer orderer = new DependencyOrderer(settings);
+    List<ProcessorDescriptor> input = List.of(pd6, pd5, pd4, pd3, pd2, pd1);
+
+    // pd5 creates nothing so is kept for its side effects, along with pd1 and pd2 which it needs
+    assertEquals(List.of(pd4, pd3), orderer.findRedundantProcessors(input));
+    assertEquals(List.of(pd6, pd1, pd2, pd5), orderer.orderProcessors(input));
+    assertEquals(List.of(List.of(pd6, pd1), List.of(pd2), List.of(pd5)), orderer.planStages(input));
+
+    // Without any required capabilities, nothing is pruned
+    assertTrue(new DependencyOrderer().findRedundantProcessors(input).isEmpty());
+  }
+
+  @Test
+  public void testPruningDeletes() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(List.of("Foo"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd2 =
+        annotationProcessor(List.of("Bar"), Collections.emptyList(), Collections.emptyList());
+    ProcessorDescriptor pd3 =
+        annotationProcessor(Collections.emptyList(), Collections.emptyList(), List.of("Foo"));
+
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setRequiredCapabilities(Collections.emptyList());
+
+    // Only processors creating something that isn't required can be pruned
+    DependencyOrderer orderer = new DependencyOrderer(settings);
+    assertEquals(List.of(pd1, pd3), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+  }
+
+  @Test
+  public void testBoundsMatching() {
+    ProcessorDescriptor pd1 =
+        annotationProcessor(List.of("Foo"), Collections.emptyList(), Collections.emptyList());
+
+    // Processes Foo annotations with any bounds
+    AnnotationCapability anyBounds = mock(AnnotationCapability.class);
+    when(anyBounds.getType()).thenAnswer(i -> "Foo");
+    when(anyBounds.getBounds()).thenAnswer(i -> Bounds.class);
+
+    Capabilities c = mock(Capabilities.class);
+    when(c.creates()).thenAnswer(i -> Stream.empty());
+    when(c.processes()).thenAnswer(i -> Stream.of(anyBounds));
+    when(c.deletes()).thenAnswer(i -> Stream.empty());
+
+    ProcessorDescriptor pd2 = mock(ProcessorDescriptor.class);
+    when(pd2.capabilities()).thenReturn(c);
+    when(pd2.getName()).thenReturn("Processor 2");
+
+    DependencyOrderer strict = new DependencyOrderer();
+    assertEquals(List.of(pd2, pd1), strict.orderProcessors(List.of(pd2, pd1)));
+
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setBoundsMatching(DependencyOrderer.BoundsMatching.SUBTYPE);
+    DependencyOrderer subtype = new DependencyOrderer(settings);
+    assertEquals(List.of(pd1, pd2), subtype.orderProcessors(List.of(pd2, pd1)));
+
+    settings.setBoundsMatching(DependencyOrderer.BoundsMatching.SUPERTYPE);
+    DependencyOrderer supertype = new DependencyOrderer(settings);
+    assertEquals(List.of(pd2, pd1), supertype.orderProcessors(List.of(pd2, pd1)));
+
+    settings.setBoundsMatching(null);
+    assertFalse(settings.validate());
+  }
+
+  private static DependencyOrderer.Settings componentsSettings() {
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setCycleBreaking(DependencyOrderer.CycleBreaking.STRONGLY_CONNECTED_COMPONENTS);
+    return settings;
+  }
+
   private interface StringContent extends Content<String> {}
 
   private interface IntegerContent extends Content<Integer> {}
@@ -0,0 +1,217 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.GroupCapability;
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class IncrementalDependencyOrdererTest {
+  private int processorName = 1;
+
+  @Test
+  public void testAddReverseOrder() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(List.of("Baz"), List.of("Bar"));
+    ProcessorDescriptor pd4 = processor(Collections.emptyList(), List.of("Baz"));
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    assertTrue(orderer.add(pd4));
+    assertTrue(orderer.add(pd3));
+    assertTrue(orderer.add(pd2));
+    assertTrue(orderer.add(pd1));
+    assertFalse(orderer.add(pd1));
+
+    assertEquals(List.of(pd1, pd2, pd3, pd4), orderer.getOrder());
+  }
+
+  @Test
+  public void testAddOnlyMovesAffected() {
+    ProcessorDescriptor pd1 = processor(Collections.emptyList(), List.of("Foo"));
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), Collections.emptyList());
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Bar"));
+    ProcessorDescriptor pd4 = processor(List.of("Foo"), Collections.emptyList());
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    orderer.add(pd1);
+    orderer.add(pd2);
+    orderer.add(pd3);
+    assertEquals(List.of(pd1, pd2, pd3), orderer.getOrder());
+
+    // pd4 must be before pd1, but pd2 and pd3 are unaffected
+    orderer.add(pd4);
+    assertEquals(List.of(pd4, pd2, pd3, pd1), orderer.getOrder());
+  }
+
+  @Test
+  public void testRemove() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Bar"));
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    orderer.add(pd3);
+    orderer.add(pd2);
+    orderer.add(pd1);
+
+    assertTrue(orderer.remove(pd2));
+    assertFalse(orderer.remove(pd2));
+    assertFalse(orderer.contains(pd2));
+    assertEquals(List.of(pd1, pd3), orderer.getOrder());
+
+    // Re-added processor must still go between the two
+    orderer.add(pd2);
+    assertTrue(orderer.contains(pd2));
+    assertEquals(List.of(pd1, pd2, pd3), orderer.getOrder());
+  }
+
+  @Test
+  public void testCycle() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), List.of("Bar"));
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Foo"));
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    orderer.add(pd3);
+    orderer.add(pd1);
+    orderer.add(pd2);
+
+    // Dependency of pd1 on pd2 is ignored
+    assertEquals(List.of(pd1, pd3, pd2), orderer.getOrder());
+
+    orderer.remove(pd1);
+    orderer.add(pd1);
+
+    // Dependency of pd2 on pd1 is ignored
+    assertEquals(List.of(pd2, pd1, pd3), orderer.getOrder());
+  }
+
+  @Test
+  public void testCycleRemoved() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), List.of("Bar"));
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Baz"));
+    ProcessorDescriptor pd3 = processor(List.of("Baz"), List.of("Foo"));
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    orderer.add(pd1);
+    orderer.add(pd2);
+    orderer.add(pd3);
+
+    // Dependency of pd2 on pd3 is ignored
+    assertEquals(List.of(pd2, pd1, pd3), orderer.getOrder());
+
+    // Removing pd1 breaks the cycle, so the ignored dependency is now satisfied
+    orderer.remove(pd1);
+    assertEquals(List.of(pd3, pd2), orderer.getOrder());
+  }
+
+  @Test
+  public void testOrderProcessors() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), Collections.emptyList());
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(Collections.emptyList(), List.of("Bar"));
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd3, pd2, pd1)));
+    assertEquals(List.of(pd1, pd3), orderer.orderProcessors(List.of(pd3, pd1)));
+    assertEquals(List.of(pd1, pd2, pd3), orderer.orderProcessors(List.of(pd2, pd1, pd3)));
+  }
+
+  @Test
+  public void testRandomAddRemove() {
+    // Processor i creates type i, and processes some types less than i, so there are no cycles
+    Random r = new Random(1234L);
+
+    int n = 200;
+    List<ProcessorDescriptor> all = new ArrayList<>();
+    List<Set<Integer>> processes = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      Set<Integer> p = new HashSet<>();
+      for (int j = 0; j < 3 && i > 0; j++) p.add(r.nextInt(i));
+
+      processes.add(p);
+      all.add(processor(List.of("T" + i), p.stream().map(j -> "T" + j).collect(toList())));
+    }
+
+    IncrementalDependencyOrderer orderer = new IncrementalDependencyOrderer();
+    Set<Integer> added = new HashSet<>();
+    for (int step = 0; step < 2000; step++) {
+      int i = r.nextInt(n);
+      if (added.contains(i) && r.nextInt(3) == 0) {
+        assertTrue(orderer.remove(all.get(i)));
+        added.remove(i);
+      } else if (!added.contains(i)) {
+        assertTrue(orderer.add(all.get(i)));
+        added.add(i);
+      }
+
+      List<ProcessorDescriptor> order = orderer.getOrder();
+      assertEquals(added.size(), order.size());
+
+      for (int k : added) {
+        int position = order.indexOf(all.get(k));
+        for (int j : processes.get(k)) {
+          if (added.contains(j)) assertTrue(order.indexOf(all.get(j)) < position);
+        }
+      }
+    }
+  }
+
+  private ProcessorDescriptor processor(Collection<String> creates, Collection<String> processes) {
+    Capabilities c = mock(Capabilities.class);
+    List<Capability> lc = groups(creates);
+    List<Capability> lp = groups(processes);
+    when(c.creates()).thenAnswer(i -> lc.stream());
+    when(c.processes()).thenAnswer(i -> lp.stream());
+    when(c.deletes()).thenAnswer(i -> Collections.<Capability>emptyList().stream());
+
+    String name = "Processor " + processorName++;
+
+    ProcessorDescriptor pd = mock(ProcessorDescriptor.class);
+    when(pd.capabilities()).thenReturn(c);
+    when(pd.getName()).thenReturn(name);
+    when(pd.toString()).thenReturn(name);
+
+    return pd;
+  }
+
+  private static List<Capability> groups(Collection<String> types) {
+    List<Capability> l = new ArrayList<>();
+    for (String s : types) {
+      GroupCapability gc = mock(GroupCapability.class);
+      when(gc.getType()).thenAnswer(i -> s);
+      l.add(gc);
+    }
+    return l;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.annot8.api.capabilities.Capabilities;
+import io.annot8.api.capabilities.Capability;
+import io.annot8.api.capabilities.GroupCapability;
+import io.annot8.api.components.ProcessorDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class OrderingPhasesTest {
+
+  @Test
+  public void testPhases() {
+    ProcessorDescriptor pd1 = processor(List.of("Foo"), List.of("Baz"));
+    ProcessorDescriptor pd2 = processor(List.of("Bar"), List.of("Foo"));
+    ProcessorDescriptor pd3 = processor(List.of("Baz"), List.of("Bar"));
+    ProcessorDescriptor pd4 = processor(List.of(), List.of("Foo"));
+
+    DependencyOrderer.Settings settings = new DependencyOrderer.Settings();
+    settings.setCycleBreaking(DependencyOrderer.CycleBreaking.STRONGLY_CONNECTED_COMPONENTS);
+
+    OrderingPhases phases =
+        OrderingPhases.buildGraph(new DependencyOrderer(settings), List.of(pd1, pd2, pd3, pd4));
+    assertEquals(4, phases.size());
+
+    // The first three processors form a cycle, and the last depends on it, so none can be ordered
+    assertEquals(0, phases.topologicalOrder().length);
+    List<int[]> components = phases.stronglyConnectedComponents();
+    assertEquals(2, components.size());
+    assertTrue(components.stream().anyMatch(c -> Arrays.equals(c, new int[] {0, 1, 2})));
+
+    phases.breakCycles();
+    assertEquals(4, phases.topologicalOrder().length);
+    assertEquals(4, phases.stronglyConnectedComponents().size());
+  }
+
+  private static ProcessorDescriptor processor(
+      Collection<String> creates, Collection<String> processes) {
+    List<Capability> lc = groups(creates);
+    List<Capability> lp = groups(processes);
+
+    Capabilities c = mock(Capabilities.class);
+    when(c.creates()).thenAnswer(i -> lc.stream());
+    when(c.processes()).thenAnswer(i -> lp.stream());
+    when(c.deletes()).thenAnswer(i -> new ArrayList<Capability>().stream());
+
+    ProcessorDescriptor pd = mock(ProcessorDescriptor.class);
+    when(pd.capabilities()).thenReturn(c);
+    return pd;
+  }
+
+  private static List<Capability> groups(Collection<String> types) {
+    List<Capability> l = new ArrayList<>();
+    for (String s : types) {
+      GroupCapability gc = mock(GroupCapability.class);
+      when(gc.getType()).thenAnswer(i -> s);
+      l.add(gc);
+    }
+    return l;
+  }
+}
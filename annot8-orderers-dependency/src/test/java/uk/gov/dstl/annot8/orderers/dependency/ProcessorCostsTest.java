@@ -0,0 +1,83 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.orderers.dependency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.annot8.api.components.ProcessorDescriptor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ProcessorCostsTest {
+
+  @Test
+  public void testDeclared() {
+    ProcessorCosts costs = new ProcessorCosts(Map.of("Foo", 2.5), 0.5);
+
+    assertEquals(2.5, costs.getCost(processor("Foo")), 0.0001);
+    assertEquals(0.5, costs.getCost(processor("Bar")), 0.0001);
+    assertEquals(0.5, costs.getCost(processor(null)), 0.0001);
+  }
+
+  @Test
+  public void testNegative() {
+    assertThrows(IllegalArgumentException.class, () -> new ProcessorCosts(Map.of("Foo", -1.0)));
+  }
+
+  @Test
+  public void testLoad() throws IOException {
+    Path p = Files.createTempFile("costs", ".txt");
+    try {
+      Files.write(
+          p, List.of("# Mean time per item (ms)", "", "Foo=12.5", "Bar = 3", "Name with = sign=7"));
+
+      ProcessorCosts costs = ProcessorCosts.load(p);
+      assertEquals(12.5, costs.getCost(processor("Foo")), 0.0001);
+      assertEquals(3.0, costs.getCost(processor("Bar")), 0.0001);
+      assertEquals(7.0, costs.getCost(processor("Name with = sign")), 0.0001);
+      assertEquals(ProcessorCosts.DEFAULT_COST, costs.getCost(processor("Baz")), 0.0001);
+    } finally {
+      Files.delete(p);
+    }
+  }
+
+  @Test
+  public void testLoadInvalid() throws IOException {
+    Path p = Files.createTempFile("costs", ".txt");
+    try {
+      Files.write(p, List.of("Foo=twelve"));
+      assertThrows(IllegalArgumentException.class, () -> ProcessorCosts.load(p));
+
+      Files.write(p, List.of("Foo"));
+      assertThrows(IllegalArgumentException.class, () -> ProcessorCosts.load(p));
+    } finally {
+      Files.delete(p);
+    }
+  }
+
+  private static ProcessorDescriptor processor(String name) {
+    ProcessorDescriptor pd = mock(ProcessorDescriptor.class);
+    when(pd.getName()).thenReturn(name);
+    return pd;
+  }
+}
@@ -0,0 +1,7 @@
+module uk.gov.dstl.annot8.utils.tokens {
+  requires io.annot8.api;
+  requires io.annot8.common.data;
+  requires io.annot8.conventions;
+
+  exports uk.gov.dstl.annot8.utils.tokens;
+}
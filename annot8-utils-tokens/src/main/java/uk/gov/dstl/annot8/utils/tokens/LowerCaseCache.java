@@ -0,0 +1,126 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.utils.tokens;
+
+import java.util.Locale;
+
+/**
+ * Cache of lower case strings, which can be looked up by a region of another string without first
+ * creating a substring. Once a word has been seen, finding its lower case form doesn't allocate.
+ *
+ * <p>Strings are compared a character at a time using {@link Character#toLowerCase(char)}. That
+ * is the same as {@link String#toLowerCase()} except for capital sigma, whose lower case depends
+ * on where it is in the word, capital I with dot above, supplementary characters, and in the
+ * Turkish, Azerbaijani and Lithuanian locales. Strings containing those characters, or any string
+ * when the default locale is one of those, are converted with {@link String#toLowerCase()} and
+ * neither cached nor matched against the cache, so the result is always the same as {@link
+ * String#toLowerCase()}.
+ *
+ * <p>This class is not thread safe.
+ */
+public final class LowerCaseCache {
+  public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+  private final int maxSize;
+
+  // Open addressing with linear probing, kept at most half full
+  private String[] table = new String[64];
+  private int size = 0;
+
+  public LowerCaseCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /** Once maxSize strings have been cached, new strings are still converted but not cached */
+  public LowerCaseCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public String toLowerCase(String s) {
+    return toLowerCase(s, 0, s.length());
+  }
+
+  /** Returns the lower case form of the characters in s between begin and end */
+  public String toLowerCase(String s, int begin, int end) {
+    if (isLocaleSpecific(Locale.getDefault())) return s.substring(begin, end).toLowerCase();
+
+    int hash = hash(s, begin, end);
+    int mask = table.length - 1;
+
+    for (int i = hash & mask; table[i] != null; i = (i + 1) & mask) {
+      if (matches(table[i], s, begin, end)) return table[i];
+    }
+
+    String lower = s.substring(begin, end).toLowerCase();
+    if (size < maxSize && matches(lower, s, begin, end)) {
+      if (2 * (size + 1) > table.length) resize();
+      insert(lower, hash);
+      size++;
+    }
+
+    return lower;
+  }
+
+  /** The number of strings cached */
+  public int size() {
+    return size;
+  }
+
+  private void resize() {
+    String[] old = table;
+    table = new String[old.length * 2];
+    for (String e : old) {
+      if (e != null) insert(e, hash(e, 0, e.length()));
+    }
+  }
+
+  private void insert(String lower, int hash) {
+    int mask = table.length - 1;
+    int i = hash & mask;
+    while (table[i] != null) i = (i + 1) & mask;
+    table[i] = lower;
+  }
+
+  private static boolean matches(String lower, String s, int begin, int end) {
+    if (lower.length() != end - begin) return false;
+
+    for (int i = begin; i < end; i++) {
+      char c = s.charAt(i);
+      if (c >= '\u0130' && isContextSpecific(c)) return false;
+      if (lower.charAt(i - begin) != Character.toLowerCase(c)) return false;
+    }
+    return true;
+  }
+
+  /** Whether String.toLowerCase() may not lower case c the same as Character.toLowerCase(c) */
+  private static boolean isContextSpecific(char c) {
+    return c == '\u0130' || c == '\u03A3' || Character.isSurrogate(c);
+  }
+
+  /** Whether String.toLowerCase() uses special rules for the locale */
+  private static boolean isLocaleSpecific(Locale locale) {
+    String language = locale.getLanguage();
+    return language.equals("tr") || language.equals("az") || language.equals("lt");
+  }
+
+  private static int hash(String s, int begin, int end) {
+    int h = 0;
+    for (int i = begin; i < end; i++) h = 31 * h + Character.toLowerCase(s.charAt(i));
+
+    // Spread the high bits into the low bits used to index the table
+    return h ^ (h >>> 16);
+  }
+}
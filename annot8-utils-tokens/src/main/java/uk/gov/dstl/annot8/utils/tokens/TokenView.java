@@ -0,0 +1,164 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.utils.tokens;
+
+import io.annot8.api.annotations.Annotation;
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.common.data.content.Text;
+import io.annot8.common.data.utils.SortUtils;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A snapshot of the word tokens of a Text, sorted by their bounds, with the bounds, lower case text
+ * and lemma of each token held in arrays. Reading a token from the view doesn't touch the
+ * annotation store or create substrings, so processors that read every token, possibly several
+ * times, can build the view once and then index into it.
+ *
+ * <p>Views aren't cached or shared between processors, as the annotation store gives no way to
+ * tell whether the tokens have changed since a view was built. Each processor builds its own view
+ * each time it processes a Text.
+ *
+ * <p>A view doesn't change once built, so can be read by several threads.
+ */
+public final class TokenView {
+  private final String text;
+  private final Annotation[] annotations;
+  private final int[] begins;
+  private final int[] ends;
+  private final String[] lowerCase;
+  private final String[] lemmas;
+
+  private TokenView(
+      String text,
+      Annotation[] annotations,
+      int[] begins,
+      int[] ends,
+      String[] lowerCase,
+      String[] lemmas) {
+    this.text = text;
+    this.annotations = annotations;
+    this.begins = begins;
+    this.ends = ends;
+    this.lowerCase = lowerCase;
+    this.lemmas = lemmas;
+  }
+
+  /** Builds a view of the current word tokens of the content */
+  public static TokenView build(Text content) {
+    return build(content, new LowerCaseCache());
+  }
+
+  /**
+   * Builds a view of the current word tokens of the content, finding the lower case form of each
+   * token with the cache. A processor that holds a cache between documents only allocates the
+   * lower case form of a word the first time it sees it.
+   */
+  public static TokenView build(Text content, LowerCaseCache cache) {
+    List<Annotation> tokens =
+        content
+            .getAnnotations()
+            .getByBoundsAndType(SpanBounds.class, AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+            .sorted(SortUtils.SORT_BY_SPANBOUNDS)
+            .collect(Collectors.toList());
+
+    String text = content.getData();
+    int n = tokens.size();
+
+    Annotation[] annotations = tokens.toArray(new Annotation[0]);
+    int[] begins = new int[n];
+    int[] ends = new int[n];
+    String[] lowerCase = new String[n];
+    String[] lemmas = new String[n];
+
+    // Repeated words share a single lower case string
+    for (int i = 0; i < n; i++) {
+      Annotation a = annotations[i];
+      SpanBounds bounds = a.getBounds(SpanBounds.class).get();
+      begins[i] = bounds.getBegin();
+      ends[i] = bounds.getEnd();
+
+      if (isValid(text, begins[i], ends[i])) {
+        lowerCase[i] = cache.toLowerCase(text, begins[i], ends[i]);
+      } else {
+        lowerCase[i] = "";
+      }
+
+      if (a.getProperties().has(PropertyKeys.PROPERTY_KEY_LEMMA, String.class)) {
+        lemmas[i] =
+            cache.toLowerCase(
+                a.getProperties().get(PropertyKeys.PROPERTY_KEY_LEMMA, String.class).get());
+      } else {
+        lemmas[i] = lowerCase[i];
+      }
+    }
+
+    return new TokenView(text, annotations, begins, ends, lowerCase, lemmas);
+  }
+
+  /** The number of word tokens */
+  public int size() {
+    return begins.length;
+  }
+
+  public Annotation getAnnotation(int i) {
+    return annotations[i];
+  }
+
+  public int getBegin(int i) {
+    return begins[i];
+  }
+
+  public int getEnd(int i) {
+    return ends[i];
+  }
+
+  /** The text of the token, or an empty string if its bounds are outside the text */
+  public String getText(int i) {
+    return isValid(text, begins[i], ends[i]) ? text.substring(begins[i], ends[i]) : "";
+  }
+
+  /** The lower case text of the token, or an empty string if its bounds are outside the text */
+  public String getLowerCase(int i) {
+    return lowerCase[i];
+  }
+
+  /** The lower case lemma of the token, or its lower case text if it has no lemma */
+  public String getLemma(int i) {
+    return lemmas[i];
+  }
+
+  /** The index of the first token that begins at or after offset, or size() if there isn't one */
+  public int lowerBound(int offset) {
+    int low = 0;
+    int high = begins.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (begins[mid] < offset) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static boolean isValid(String text, int begin, int end) {
+    return begin >= 0 && end <= text.length() && begin <= end;
+  }
+}
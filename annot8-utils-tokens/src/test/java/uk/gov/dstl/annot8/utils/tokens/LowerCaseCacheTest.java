@@ -0,0 +1,113 @@
+/*
+ * Crown Copyright (C) 2019 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.utils.tokens;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+public class LowerCaseCacheTest {
+
+  @Test
+  public void testToLowerCase() {
+    LowerCaseCache cache = new LowerCaseCache();
+
+    String text = "The cat sat on THE mat with the Cat";
+
+    String the = cache.toLowerCase(text, 0, 3);
+    assertEquals("the", the);
+    assertSame(the, cache.toLowerCase(text, 15, 18));
+    assertSame(the, cache.toLowerCase(text, 28, 31));
+    assertSame(the, cache.toLowerCase("the"));
+
+    String cat = cache.toLowerCase(text, 4, 7);
+    assertEquals("cat", cat);
+    assertSame(cat, cache.toLowerCase(text, 32, 35));
+
+    assertEquals("", cache.toLowerCase(text, 3, 3));
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void testResize() {
+    LowerCaseCache cache = new LowerCaseCache();
+
+    for (int i = 0; i < 1000; i++) cache.toLowerCase("Word" + i);
+    assertEquals(1000, cache.size());
+
+    for (int i = 0; i < 1000; i++) assertEquals("word" + i, cache.toLowerCase("WORD" + i));
+    assertEquals(1000, cache.size());
+  }
+
+  @Test
+  public void testMaxSize() {
+    LowerCaseCache cache = new LowerCaseCache(2);
+
+    cache.toLowerCase("A");
+    cache.toLowerCase("B");
+    String c = cache.toLowerCase("C");
+
+    assertEquals("c", c);
+    assertNotSame(c, cache.toLowerCase("C"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testMatchesStringToLowerCase() {
+    LowerCaseCache cache = new LowerCaseCache();
+
+    // Final sigma depends on context, so isn't the same as lower casing each character
+    String[] words = {"\u039F\u0394\u039F\u03A3", "Stra\u00DFe", "\u0130stanbul", "\u01C5"};
+    for (String s : words) {
+      assertEquals(s.toLowerCase(), cache.toLowerCase(s));
+      assertEquals(s.toLowerCase(), cache.toLowerCase(s));
+    }
+  }
+
+  @Test
+  public void testSpecialCasingNotMatchedFromCache() {
+    LowerCaseCache cache = new LowerCaseCache();
+
+    // Each cached word is what lower casing the next a character at a time would give
+    String[][] pairs = {
+      {"\u03BF\u03B4\u03BF\u03C3", "\u039F\u0394\u039F\u03A3"},
+      {"istanbul", "\u0130stanbul"},
+      {"\uD801\uDC00", "\uD801\uDC00"}
+    };
+    for (String[] pair : pairs) {
+      assertEquals(pair[0].toLowerCase(), cache.toLowerCase(pair[0]));
+      assertEquals(pair[1].toLowerCase(), cache.toLowerCase(pair[1]));
+    }
+  }
+
+  @Test
+  public void testTurkishLocale() {
+    Locale defaultLocale = Locale.getDefault();
+    try {
+      LowerCaseCache cache = new LowerCaseCache();
+      assertEquals("istanbul", cache.toLowerCase("istanbul"));
+
+      Locale.setDefault(new Locale("tr"));
+      assertEquals("\u0131stanbul", cache.toLowerCase("Istanbul"));
+      assertEquals("istanbul", cache.toLowerCase("\u0130stanbul"));
+    } finally {
+      Locale.setDefault(defaultLocale);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Crown Copyright (C) 2021 Dstl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.gov.dstl.annot8.utils.tokens;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.annot8.common.data.bounds.SpanBounds;
+import io.annot8.conventions.AnnotationTypes;
+import io.annot8.conventions.PropertyKeys;
+import io.annot8.testing.testimpl.TestItem;
+import io.annot8.testing.testimpl.content.TestStringContent;
+import org.junit.jupiter.api.Test;
+
+public class TokenViewTest {
+
+  @Test
+  public void testBuild() {
+    TestStringContent content =
+        new TestItem()
+            .createContent(TestStringContent.class)
+            .withData("The Cats ran, the dog sat.")
+            .save();
+
+    // Added out of order, to check they are sorted
+    addToken(content, 22, 25);
+    addToken(content, 4, 8, "cat");
+    addToken(content, 0, 3);
+    addToken(content, 14, 17);
+    addToken(content, 20, 40);
+
+    TokenView view = TokenView.build(content);
+    assertEquals(5, view.size());
+
+    assertEquals(0, view.getBegin(0));
+    assertEquals(3, view.getEnd(0));
+    assertEquals("The", view.getText(0));
+    assertEquals("the", view.getLowerCase(0));
+    assertEquals("the", view.getLemma(0));
+
+    assertEquals("Cats", view.getText(1));
+    assertEquals("cats", view.getLowerCase(1));
+    assertEquals("cat", view.getLemma(1));
+    assertEquals(
+        "cat",
+        view.getAnnotation(1).getProperties().get(PropertyKeys.PROPERTY_KEY_LEMMA).orElse(null));
+
+    // Repeated words share a string
+    assertSame(view.getLowerCase(0), view.getLowerCase(2));
+
+    // Bounds outside the text
+    assertEquals(20, view.getBegin(3));
+    assertEquals("", view.getText(3));
+    assertEquals("", view.getLowerCase(3));
+
+    assertEquals("sat", view.getText(4));
+  }
+
+  @Test
+  public void testLowerBound() {
+    TestStringContent content =
+        new TestItem().createContent(TestStringContent.class).withData("The cat sat.").save();
+    addToken(content, 0, 3);
+    addToken(content, 4, 7);
+    addToken(content, 8, 11);
+
+    TokenView view = TokenView.build(content);
+    assertEquals(0, view.lowerBound(0));
+    assertEquals(1, view.lowerBound(1));
+    assertEquals(1, view.lowerBound(4));
+    assertEquals(2, view.lowerBound(8));
+    assertEquals(3, view.lowerBound(9));
+  }
+
+  @Test
+  public void testSharedCache() {
+    TestStringContent first =
+        new TestItem().createContent(TestStringContent.class).withData("The cat sat.").save();
+    addToken(first, 4, 7);
+    TestStringContent second =
+        new TestItem().createContent(TestStringContent.class).withData("A Cat ran.").save();
+    addToken(second, 2, 5);
+
+    // Words seen in an earlier document aren't lower cased again
+    LowerCaseCache cache = new LowerCaseCache();
+    TokenView firstView = TokenView.build(first, cache);
+    TokenView secondView = TokenView.build(second, cache);
+    assertSame(firstView.getLowerCase(0), secondView.getLowerCase(0));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testSnapshot() {
+    TestStringContent content =
+        new TestItem().createContent(TestStringContent.class).withData("The cat sat.").save();
+    addToken(content, 0, 3);
+    addToken(content, 4, 7);
+
+    TokenView view = TokenView.build(content);
+    assertEquals("cat", view.getText(1));
+
+    // Replace a token, keeping the number of tokens the same
+    content.getAnnotations().delete(view.getAnnotation(1));
+    addToken(content, 8, 11);
+
+    TokenView rebuilt = TokenView.build(content);
+    assertEquals(2, rebuilt.size());
+    assertEquals("sat", rebuilt.getText(1));
+
+    // The earlier view is unchanged
+    assertEquals("cat", view.getText(1));
+  }
+
+  private static void addToken(TestStringContent content, int begin, int end) {
+    content
+        .getAnnotations()
+        .create()
+        .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+        .withBounds(new SpanBounds(begin, end))
+        .save();
+  }
+
+  private static void addToken(TestStringContent content, int begin, int end, String lemma) {
+    content
+        .getAnnotations()
+        .create()
+        .withType(AnnotationTypes.ANNOTATION_TYPE_WORDTOKEN)
+        .withBounds(new SpanBounds(begin, end))
+        .withProperty(PropertyKeys.PROPERTY_KEY_LEMMA, lemma)
+        .save();
+  }
+}